@@ -0,0 +1,72 @@
+package bandwidthmonitor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Renders the client graph into an offscreen image, runs headless
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class BandwidthGraphBenchmark {
+    private static final int HISTORY_SIZE = 60;
+    private static final int WIDTH = 900;
+    private static final int HEIGHT = 450;
+
+    private BandwidthMonitorClient.BandwidthGraph graph;
+    private double[] downloadHistory;
+    private double[] uploadHistory;
+    private BufferedImage image;
+    private Graphics2D graphics;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        downloadHistory = new double[HISTORY_SIZE];
+        uploadHistory = new double[HISTORY_SIZE];
+        for (int i = 0; i < HISTORY_SIZE; i++) {
+            downloadHistory[i] = random.nextDouble() * 5000;
+            uploadHistory[i] = random.nextDouble() * 800;
+        }
+
+        graph = new BandwidthMonitorClient.BandwidthGraph();
+        graph.setSize(WIDTH, HEIGHT);
+        graph.updateData(downloadHistory, uploadHistory);
+
+        image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        graphics = image.createGraphics();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        graphics.dispose();
+    }
+
+    @Benchmark
+    public void updateData() {
+        graph.updateData(downloadHistory, uploadHistory);
+    }
+
+    @Benchmark
+    public BufferedImage paintComponent() {
+        graph.paintComponent(graphics);
+        return image;
+    }
+}
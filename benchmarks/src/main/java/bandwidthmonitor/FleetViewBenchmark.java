@@ -0,0 +1,99 @@
+package bandwidthmonitor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// One fleet frame: apply a full update, then paint the rows inside a viewport. Headless, offscreen.
+// The fleet view has to stay under 16 ms per frame with 1,000 agents updating every second.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class FleetViewBenchmark {
+    private static final int HISTORY_SIZE = 60;
+    private static final int WIDTH = 900;
+    private static final int VIEWPORT_HEIGHT = 500;
+
+    @Param({"1000", "5000"})
+    public int agents;
+
+    private FleetUpdate[] updates;
+    private int nextUpdate;
+    private FleetHistory history;
+    private BandwidthMonitorClient.FleetView view;
+    private BufferedImage image;
+    private Graphics2D graphics;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        String[] ids = new String[agents];
+        for (int i = 0; i < agents; i++) {
+            ids[i] = "agent-" + i;
+        }
+        // Enough distinct updates that the sort order keeps changing
+        updates = new FleetUpdate[16];
+        for (int u = 0; u < updates.length; u++) {
+            double[] downloads = new double[agents];
+            double[] uploads = new double[agents];
+            for (int i = 0; i < agents; i++) {
+                downloads[i] = random.nextDouble() * 5000;
+                uploads[i] = random.nextDouble() * 800;
+            }
+            updates[u] = new FleetUpdate(ids, downloads, uploads);
+        }
+
+        history = new FleetHistory(HISTORY_SIZE);
+        for (int i = 0; i < HISTORY_SIZE; i++) {
+            history.apply(updates[i % updates.length]);
+        }
+        view = new BandwidthMonitorClient.FleetView(history);
+        view.setSize(WIDTH, history.size() * BandwidthMonitorClient.FleetView.ROW_HEIGHT);
+
+        image = new BufferedImage(WIDTH, VIEWPORT_HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        graphics = image.createGraphics();
+        graphics.setClip(0, 0, WIDTH, VIEWPORT_HEIGHT);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        graphics.dispose();
+    }
+
+    @Benchmark
+    public FleetHistory apply() {
+        history.apply(updates[nextUpdate++ % updates.length]);
+        return history;
+    }
+
+    @Benchmark
+    public BufferedImage paintViewport() {
+        view.paintComponent(graphics);
+        return image;
+    }
+
+    @Benchmark
+    public BufferedImage frame() {
+        history.apply(updates[nextUpdate++ % updates.length]);
+        view.paintComponent(graphics);
+        return image;
+    }
+}
@@ -0,0 +1,74 @@
+package bandwidthmonitor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.TimeUnit;
+
+// Java serialization (the current wire format) against the fixed-layout NetworkDataCodec
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NetworkDataCodecBenchmark {
+    private NetworkData data;
+    private byte[] serialized;
+    private byte[] encoded;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        data = new NetworkData(1532.75, 210.5, 7_340_032L, 1_048_576L, 42, 1);
+        serialized = serializationEncode();
+        encoded = codecEncode();
+    }
+
+    @Benchmark
+    public byte[] serializationEncode() throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(512);
+        try (ObjectOutputStream out = new ObjectOutputStream(buffer)) {
+            out.writeObject(data);
+        }
+        return buffer.toByteArray();
+    }
+
+    @Benchmark
+    public NetworkData serializationDecode() throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serialized))) {
+            return (NetworkData) in.readObject();
+        }
+    }
+
+    @Benchmark
+    public byte[] codecEncode() throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(NetworkDataCodec.ENCODED_SIZE);
+        try (DataOutputStream out = new DataOutputStream(buffer)) {
+            NetworkDataCodec.write(data, out);
+        }
+        return buffer.toByteArray();
+    }
+
+    @Benchmark
+    public NetworkData codecDecode() throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded))) {
+            return NetworkDataCodec.read(in);
+        }
+    }
+}
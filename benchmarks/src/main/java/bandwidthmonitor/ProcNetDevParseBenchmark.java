@@ -0,0 +1,72 @@
+package bandwidthmonitor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+// Parses recorded /proc/net/dev snapshots, so results don't depend on the benchmark host
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProcNetDevParseBenchmark {
+    @Param({"proc-net-dev-small.txt", "proc-net-dev-large.txt"})
+    public String fixture;
+
+    @Param({"", "eth0"})
+    public String selectedInterface;
+
+    private String content;
+    private final long[] totals = new long[2];
+
+    @Setup(Level.Trial)
+    public void loadFixture() throws IOException {
+        content = Fixtures.read(fixture);
+    }
+
+    @Benchmark
+    public long[] parse() throws IOException {
+        String iface = selectedInterface.isEmpty() ? null : selectedInterface;
+        NetworkMonitor.parseProcNetDev(new BufferedReader(new StringReader(content)), iface, totals);
+        return totals;
+    }
+
+    static final class Fixtures {
+        private Fixtures() {
+        }
+
+        static String read(String name) throws IOException {
+            try (InputStream in = ProcNetDevParseBenchmark.class.getResourceAsStream("/fixtures/" + name)) {
+                if (in == null) {
+                    throw new IOException("Missing fixture " + name);
+                }
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                byte[] chunk = new byte[8192];
+                int read;
+                while ((read = in.read(chunk)) != -1) {
+                    buffer.write(chunk, 0, read);
+                }
+                return new String(buffer.toByteArray(), StandardCharsets.US_ASCII);
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package bandwidthmonitor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+
+// End-to-end ingest over loopback: each benchmark thread is one agent sending a sample and
+// waiting for the server's reply, so throughput is samples acknowledged per second
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class ServerIngestBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class ServerState {
+        ServerSocket serverSocket;
+        PrintStream originalOut;
+
+        @Setup(Level.Trial)
+        public void start() throws IOException {
+            // Keep the server's connection logging out of the JMH output
+            originalOut = System.out;
+            System.setOut(new PrintStream(new OutputStream() {
+                @Override
+                public void write(int b) {
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                }
+            }));
+
+            serverSocket = new ServerSocket();
+            serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            Thread acceptor = new Thread(() -> {
+                try {
+                    BandwidthMonitorServer.serve(serverSocket);
+                } catch (IOException e) {
+                    // Closed at tear-down
+                }
+            }, "bench-server");
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() throws IOException {
+            serverSocket.close();
+            System.setOut(originalOut);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class AgentState {
+        Socket socket;
+        ObjectOutputStream output;
+        ObjectInputStream input;
+        NetworkData data;
+
+        @Setup(Level.Trial)
+        public void connect(ServerState server) throws IOException {
+            socket = new Socket(InetAddress.getLoopbackAddress(), server.serverSocket.getLocalPort());
+            socket.setTcpNoDelay(true);
+            output = new ObjectOutputStream(socket.getOutputStream());
+            output.flush();
+            input = new ObjectInputStream(socket.getInputStream());
+            data = new NetworkData(1532.75, 210.5, 7_340_032L, 1_048_576L, 42, 1);
+        }
+
+        @TearDown(Level.Trial)
+        public void disconnect() throws IOException {
+            socket.close();
+        }
+    }
+
+    @Benchmark
+    public Object ingest(AgentState agent) throws IOException, ClassNotFoundException {
+        agent.output.writeObject(agent.data);
+        agent.output.flush();
+        agent.output.reset();
+        return agent.input.readObject();
+    }
+}
@@ -0,0 +1,579 @@
+package bandwidthmonitor;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.SequenceInputStream;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+// Simulates many agents against one BandwidthMonitorServer over loopback and ramps the agent
+// count step by step until ingest throughput or latency shows the server is saturated.
+// Agents speak the same Java serialization protocol as BandwidthMonitorClient, but all of
+// them are multiplexed over a few NIO selector threads instead of a thread per agent.
+public class LoadGenerator {
+    private static final byte[] STREAM_HEADER = {(byte) 0xAC, (byte) 0xED, 0x00, 0x05};
+    private static final byte TC_RESET = 0x79; // The server ends every reply with a stream reset
+    private static final int MAX_QUEUED_SAMPLES = 64; // per agent, beyond that samples are dropped
+    private static final double MIN_THROUGHPUT_RATIO = 0.95;
+
+    private final String host;
+    private final int port;
+    private final int[] steps;
+    private final double samplesPerSecond;
+    private final long warmupMillis;
+    private final long stepMillis;
+    private final long sloMillis;
+    private final TrafficShape shape;
+    private final IoWorker[] workers;
+    private int agentCount = 0;
+
+    public LoadGenerator(String host, int port, int[] steps, double samplesPerSecond, long warmupMillis,
+                         long stepMillis, long sloMillis, TrafficShape shape, int ioThreads, int maxPendingConnects) {
+        this.host = host;
+        this.port = port;
+        this.steps = steps;
+        this.samplesPerSecond = samplesPerSecond;
+        this.warmupMillis = warmupMillis;
+        this.stepMillis = stepMillis;
+        this.sloMillis = sloMillis;
+        this.shape = shape;
+        this.workers = new IoWorker[ioThreads];
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / samplesPerSecond);
+        for (int i = 0; i < ioThreads; i++) {
+            workers[i] = new IoWorker(i, intervalNanos, Math.max(1, maxPendingConnects / ioThreads));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        String host = "localhost";
+        int port = 9999;
+        int[] steps = {100, 250, 500, 1000, 2000, 4000, 8000};
+        double rate = 1.0;
+        long warmupSeconds = 5;
+        long stepSeconds = 15;
+        long sloMillis = 1000;
+        String shapeSpec = "sine";
+        int ioThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        int maxPendingConnects = 32; // Stays under the server's default accept backlog of 50
+
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            switch (args[i]) {
+                case "--host": host = value; i++; break;
+                case "--port": port = Integer.parseInt(value); i++; break;
+                case "--agents": steps = parseSteps(value); i++; break;
+                case "--rate": rate = Double.parseDouble(value); i++; break;
+                case "--warmup": warmupSeconds = Long.parseLong(value); i++; break;
+                case "--duration": stepSeconds = Long.parseLong(value); i++; break;
+                case "--slo-ms": sloMillis = Long.parseLong(value); i++; break;
+                case "--shape": shapeSpec = value; i++; break;
+                case "--io-threads": ioThreads = Integer.parseInt(value); i++; break;
+                case "--max-pending-connects": maxPendingConnects = Integer.parseInt(value); i++; break;
+                default:
+                    printUsage();
+                    return;
+            }
+        }
+
+        LoadGenerator generator = new LoadGenerator(host, port, steps, rate,
+                TimeUnit.SECONDS.toMillis(warmupSeconds), TimeUnit.SECONDS.toMillis(stepSeconds),
+                sloMillis, TrafficShape.parse(shapeSpec), ioThreads, maxPendingConnects);
+        generator.run();
+    }
+
+    private static void printUsage() {
+        System.out.println("Usage: java -jar loadgen.jar [options]");
+        System.out.println("  --host <host>                 server host (default localhost)");
+        System.out.println("  --port <port>                 server port (default 9999)");
+        System.out.println("  --agents <n,n,...>            agent counts per ramp step (default 100,250,...,8000)");
+        System.out.println("  --rate <samples/s>            samples per second per agent (default 1)");
+        System.out.println("  --warmup <seconds>            settle time after each step before measuring (default 5)");
+        System.out.println("  --duration <seconds>          measurement time per step (default 15)");
+        System.out.println("  --slo-ms <millis>             p99 ingest latency that counts as saturated (default 1000)");
+        System.out.println("  --shape <spec>                constant[:kbps] | sine[:peak[:period]] | burst[:base[:peak]] | replay:<csv>");
+        System.out.println("  --io-threads <n>              selector threads (default cores / 2)");
+        System.out.println("  --max-pending-connects <n>    connects in flight at once (default 32)");
+    }
+
+    private static int[] parseSteps(String value) {
+        String[] parts = value.split(",");
+        int[] steps = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            steps[i] = Integer.parseInt(parts[i].trim());
+        }
+        return steps;
+    }
+
+    public void run() throws InterruptedException {
+        for (IoWorker worker : workers) {
+            Thread thread = new Thread(worker, "loadgen-io-" + worker.index);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        System.out.printf("Load test against %s:%d, %.2f samples/s per agent, %d I/O threads%n",
+                host, port, samplesPerSecond, workers.length);
+        System.out.printf("%8s %9s %12s %12s %9s %9s %9s %9s %9s %8s %10s %10s%n",
+                "agents", "connected", "offered/s", "acked/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms",
+                "max ms", "dropped", "sent MB/s", "recv MB/s");
+
+        StepResult lastHealthy = null;
+        StepResult saturated = null;
+        for (int target : steps) {
+            addAgents(target);
+            Thread.sleep(warmupMillis);
+            drainAll();
+
+            long start = System.nanoTime();
+            Thread.sleep(stepMillis);
+            WorkerStats stats = drainAll();
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            StepResult result = new StepResult(target, stats, seconds);
+            result.print();
+            if (result.isSaturated()) {
+                saturated = result;
+                break;
+            }
+            lastHealthy = result;
+        }
+
+        System.out.println();
+        if (saturated != null) {
+            System.out.printf("Server saturated at %d agents (%.0f samples/s offered, %.0f acknowledged): %s%n",
+                    saturated.target, saturated.offeredRate, saturated.ackedRate, saturated.reason);
+            if (lastHealthy != null) {
+                System.out.printf("Last healthy step: %d agents at %.0f samples/s, p99 %.1f ms%n",
+                        lastHealthy.target, lastHealthy.ackedRate, lastHealthy.p99Millis());
+            }
+        } else {
+            System.out.printf("No saturation up to %d agents; extend --agents to push further%n",
+                    steps[steps.length - 1]);
+        }
+        if (saturated != null || lastHealthy != null) {
+            StepResult last = saturated != null ? saturated : lastHealthy;
+            System.out.println("Latency distribution at the last step (ms):");
+            printPercentiles(last.stats.histogram);
+        }
+
+        for (IoWorker worker : workers) {
+            worker.shutdown();
+        }
+    }
+
+    private void addAgents(int target) {
+        while (agentCount < target) {
+            workers[agentCount % workers.length].addAgent(new Agent(agentCount));
+            agentCount++;
+        }
+    }
+
+    private WorkerStats drainAll() {
+        WorkerStats total = new WorkerStats();
+        for (IoWorker worker : workers) {
+            total.add(worker.drainStats());
+        }
+        return total;
+    }
+
+    private static void printPercentiles(LatencyHistogram histogram) {
+        double[] percentiles = {50, 75, 90, 95, 99, 99.9, 99.99, 100};
+        for (double percentile : percentiles) {
+            System.out.printf("  %7.3f%%  %10.2f%n", percentile, histogram.getValueAtPercentile(percentile) / 1e6);
+        }
+        System.out.printf("  count=%d mean=%.2f ms%n", histogram.getTotalCount(), histogram.getMean() / 1e6);
+    }
+
+    private final class StepResult {
+        final int target;
+        final WorkerStats stats;
+        final double offeredRate;
+        final double ackedRate;
+        String reason;
+
+        StepResult(int target, WorkerStats stats, double seconds) {
+            this.target = target;
+            this.stats = stats;
+            this.offeredRate = stats.offered / seconds;
+            this.ackedRate = stats.histogram.getTotalCount() / seconds;
+        }
+
+        double p99Millis() {
+            return stats.histogram.getValueAtPercentile(99) / 1e6;
+        }
+
+        boolean isSaturated() {
+            if (stats.connected < target) {
+                reason = (target - stats.connected) + " agents could not connect or were dropped";
+            } else if (ackedRate < offeredRate * MIN_THROUGHPUT_RATIO) {
+                reason = String.format("throughput fell below %.0f%% of offered load", MIN_THROUGHPUT_RATIO * 100);
+            } else if (p99Millis() > sloMillis) {
+                reason = String.format("p99 ingest latency %.1f ms exceeded %d ms", p99Millis(), sloMillis);
+            }
+            return reason != null;
+        }
+
+        void print() {
+            LatencyHistogram h = stats.histogram;
+            System.out.printf("%8d %9d %12.0f %12.0f %9.2f %9.2f %9.2f %9.2f %9.2f %8d %10.2f %10.2f%n",
+                    target, stats.connected, offeredRate, ackedRate,
+                    h.getValueAtPercentile(50) / 1e6, h.getValueAtPercentile(90) / 1e6,
+                    h.getValueAtPercentile(99) / 1e6, h.getValueAtPercentile(99.9) / 1e6,
+                    h.getMax() / 1e6, stats.dropped,
+                    stats.bytesSent / (1024.0 * 1024.0) / ((double) stepMillis / 1000),
+                    stats.bytesReceived / (1024.0 * 1024.0) / ((double) stepMillis / 1000));
+        }
+    }
+
+    // Counters collected by one worker since the last drain
+    private static final class WorkerStats {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        long offered;
+        long dropped;
+        long bytesSent;
+        long bytesReceived;
+        int connected;
+
+        void add(WorkerStats other) {
+            histogram.add(other.histogram);
+            offered += other.offered;
+            dropped += other.dropped;
+            bytesSent += other.bytesSent;
+            bytesReceived += other.bytesReceived;
+            connected += other.connected;
+        }
+    }
+
+    // One simulated agent; only ever touched by the worker that owns it
+    private final class Agent {
+        final int id;
+        SocketChannel channel;
+        boolean connecting;
+        boolean connected;
+        boolean closed;
+        long nextSampleNanos;
+        long sampleIndex;
+        long totalDownloaded;
+        long totalUploaded;
+
+        final ByteArrayOutputStream encodeBuffer = new ByteArrayOutputStream(512);
+        ObjectOutputStream encoder;
+        ByteBuffer pendingWrite;
+
+        byte[] readBuffer = new byte[4096];
+        int readLength;
+        boolean headerSeen;
+
+        // Intended send times of samples not yet acknowledged; the first one is in flight when inFlight is set.
+        // Latency is measured from the intended time, so server stalls are not hidden by a slow sender.
+        final long[] queuedSamples = new long[MAX_QUEUED_SAMPLES];
+        int queueHead;
+        int queueSize;
+        boolean inFlight;
+
+        Agent(int id) {
+            this.id = id;
+        }
+
+        NetworkData nextSample() {
+            long sample = sampleIndex++;
+            double download = shape.download(id, sample);
+            double upload = shape.upload(id, sample);
+            double seconds = 1.0 / samplesPerSecond;
+            totalDownloaded += (long) (download * seconds);
+            totalUploaded += (long) (upload * seconds);
+            return new NetworkData(download, upload, totalDownloaded, totalUploaded,
+                    20 + (int) ((id + sample) % 50), (int) ((id + sample) % 5));
+        }
+    }
+
+    private final class IoWorker implements Runnable {
+        final int index;
+        final long intervalNanos;
+        final int maxPendingConnects;
+        final ConcurrentLinkedQueue<Agent> newAgents = new ConcurrentLinkedQueue<>();
+        final List<Agent> waitingToConnect = new ArrayList<>();
+        final PriorityQueue<Agent> schedule = new PriorityQueue<>((a, b) -> Long.compare(a.nextSampleNanos, b.nextSampleNanos));
+        final Selector selector;
+        volatile boolean running = true;
+        int pendingConnects;
+
+        // Guarded by this worker's monitor, swapped out by drainStats
+        private WorkerStats stats = new WorkerStats();
+        private int connectedAgents;
+
+        IoWorker(int index, long intervalNanos, int maxPendingConnects) {
+            this.index = index;
+            this.intervalNanos = intervalNanos;
+            this.maxPendingConnects = maxPendingConnects;
+            try {
+                this.selector = Selector.open();
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not open selector", e);
+            }
+        }
+
+        void addAgent(Agent agent) {
+            newAgents.add(agent);
+            selector.wakeup();
+        }
+
+        synchronized WorkerStats drainStats() {
+            WorkerStats drained = stats;
+            drained.connected = connectedAgents;
+            stats = new WorkerStats();
+            return drained;
+        }
+
+        void shutdown() {
+            running = false;
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    startConnects();
+                    long now = System.nanoTime();
+                    sendDueSamples(now);
+
+                    Agent next = schedule.peek();
+                    long waitMillis = next == null ? 100
+                            : Math.max(1, TimeUnit.NANOSECONDS.toMillis(next.nextSampleNanos - now));
+                    selector.select(Math.min(waitMillis, 100));
+
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        Agent agent = (Agent) key.attachment();
+                        try {
+                            if (key.isConnectable()) {
+                                finishConnect(agent, key);
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                flushPending(agent, key);
+                            }
+                            if (key.isValid() && key.isReadable()) {
+                                readReplies(agent);
+                            }
+                        } catch (IOException e) {
+                            close(agent);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                System.out.println("Load generator I/O worker failed: " + e.getMessage());
+            } finally {
+                for (SelectionKey key : selector.keys()) {
+                    close((Agent) key.attachment());
+                }
+            }
+        }
+
+        private void startConnects() {
+            Agent agent;
+            while ((agent = newAgents.poll()) != null) {
+                waitingToConnect.add(agent);
+            }
+            // Throttle connects so the server's accept backlog doesn't overflow
+            Iterator<Agent> waiting = waitingToConnect.iterator();
+            while (waiting.hasNext() && pendingConnects < maxPendingConnects) {
+                Agent next = waiting.next();
+                waiting.remove();
+                try {
+                    next.channel = SocketChannel.open();
+                    next.channel.configureBlocking(false);
+                    next.channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                    next.channel.connect(new InetSocketAddress(host, port));
+                    next.channel.register(selector, SelectionKey.OP_CONNECT, next);
+                    next.connecting = true;
+                    pendingConnects++;
+                } catch (IOException e) {
+                    close(next);
+                }
+            }
+        }
+
+        private void finishConnect(Agent agent, SelectionKey key) throws IOException {
+            if (!agent.channel.finishConnect()) {
+                return;
+            }
+            agent.connecting = false;
+            pendingConnects--;
+            agent.connected = true;
+            synchronized (this) {
+                connectedAgents++;
+            }
+
+            // The server blocks accepting until it has read our stream header, so send it straight away
+            agent.encoder = new ObjectOutputStream(agent.encodeBuffer);
+            agent.encoder.flush();
+            queueWrite(agent, key);
+
+            // Spread first samples over one interval so agents don't fire in lockstep
+            agent.nextSampleNanos = System.nanoTime() + (long) (Math.random() * intervalNanos);
+            schedule.add(agent);
+            key.interestOps(SelectionKey.OP_READ | (hasPending(agent) ? SelectionKey.OP_WRITE : 0));
+        }
+
+        private void sendDueSamples(long now) {
+            Agent agent;
+            while ((agent = schedule.peek()) != null && agent.nextSampleNanos <= now) {
+                schedule.poll();
+                if (agent.closed) {
+                    continue;
+                }
+                synchronized (this) {
+                    stats.offered++;
+                    if (agent.queueSize == MAX_QUEUED_SAMPLES) {
+                        stats.dropped++;
+                    } else {
+                        agent.queuedSamples[(agent.queueHead + agent.queueSize) % MAX_QUEUED_SAMPLES] = agent.nextSampleNanos;
+                        agent.queueSize++;
+                    }
+                }
+                agent.nextSampleNanos += intervalNanos;
+                schedule.add(agent);
+                try {
+                    sendNext(agent);
+                } catch (IOException e) {
+                    close(agent);
+                }
+            }
+        }
+
+        private void sendNext(Agent agent) throws IOException {
+            if (agent.inFlight || agent.queueSize == 0 || !agent.connected) {
+                return;
+            }
+            // Mirror the server's framing: reset, object, flush
+            agent.encoder.reset();
+            agent.encoder.writeObject(agent.nextSample());
+            agent.encoder.flush();
+            agent.inFlight = true;
+            queueWrite(agent, agent.channel.keyFor(selector));
+        }
+
+        private void queueWrite(Agent agent, SelectionKey key) throws IOException {
+            byte[] bytes = agent.encodeBuffer.toByteArray();
+            agent.encodeBuffer.reset();
+            if (hasPending(agent)) {
+                ByteBuffer combined = ByteBuffer.allocate(agent.pendingWrite.remaining() + bytes.length);
+                combined.put(agent.pendingWrite).put(bytes).flip();
+                agent.pendingWrite = combined;
+            } else {
+                agent.pendingWrite = ByteBuffer.wrap(bytes);
+            }
+            flushPending(agent, key);
+        }
+
+        private void flushPending(Agent agent, SelectionKey key) throws IOException {
+            if (agent.pendingWrite != null) {
+                int written = agent.channel.write(agent.pendingWrite);
+                synchronized (this) {
+                    stats.bytesSent += written;
+                }
+            }
+            if (agent.connected) {
+                key.interestOps(SelectionKey.OP_READ | (hasPending(agent) ? SelectionKey.OP_WRITE : 0));
+            }
+        }
+
+        private boolean hasPending(Agent agent) {
+            return agent.pendingWrite != null && agent.pendingWrite.hasRemaining();
+        }
+
+        private void readReplies(Agent agent) throws IOException {
+            if (agent.readLength == agent.readBuffer.length) {
+                agent.readBuffer = Arrays.copyOf(agent.readBuffer, agent.readBuffer.length * 2);
+            }
+            int read = agent.channel.read(ByteBuffer.wrap(agent.readBuffer, agent.readLength,
+                    agent.readBuffer.length - agent.readLength));
+            if (read < 0) {
+                throw new EOFException("Server closed the connection");
+            }
+            agent.readLength += read;
+            synchronized (this) {
+                stats.bytesReceived += read;
+            }
+
+            if (!agent.headerSeen) {
+                if (agent.readLength < STREAM_HEADER.length) {
+                    return;
+                }
+                agent.headerSeen = true;
+                System.arraycopy(agent.readBuffer, STREAM_HEADER.length, agent.readBuffer, 0,
+                        agent.readLength - STREAM_HEADER.length);
+                agent.readLength -= STREAM_HEADER.length;
+            }
+
+            // Only one reply is ever outstanding, so once it decodes the buffer is fully consumed.
+            // A reply can only be complete when the buffer ends with its TC_RESET; a data byte that
+            // happens to equal it costs one failed decode, so each reply is decoded about once
+            // instead of once per read event.
+            if (agent.inFlight && agent.readLength > 0 && agent.readBuffer[agent.readLength - 1] == TC_RESET
+                    && tryDecodeReply(agent)) {
+                long now = System.nanoTime();
+                synchronized (this) {
+                    stats.histogram.record(now - agent.queuedSamples[agent.queueHead]);
+                }
+                agent.queueHead = (agent.queueHead + 1) % MAX_QUEUED_SAMPLES;
+                agent.queueSize--;
+                agent.readLength = 0;
+                agent.inFlight = false;
+                sendNext(agent);
+            }
+        }
+
+        private boolean tryDecodeReply(Agent agent) throws IOException {
+            try (ObjectInputStream in = new ObjectInputStream(new SequenceInputStream(
+                    new ByteArrayInputStream(STREAM_HEADER),
+                    new ByteArrayInputStream(agent.readBuffer, 0, agent.readLength)))) {
+                in.readObject();
+                return true;
+            } catch (EOFException e) {
+                return false; // Reply not complete yet
+            } catch (ClassNotFoundException e) {
+                throw new IOException("Unexpected reply from server", e);
+            }
+        }
+
+        private void close(Agent agent) {
+            if (agent == null || agent.closed) {
+                return;
+            }
+            agent.closed = true;
+            if (agent.connected) {
+                synchronized (this) {
+                    connectedAgents--;
+                }
+            } else if (agent.connecting) {
+                pendingConnects--;
+            }
+            try {
+                if (agent.channel != null) {
+                    agent.channel.close();
+                }
+            } catch (IOException e) {
+                // Already closing
+            }
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package bandwidthmonitor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+// Speeds (KB/s) reported by a simulated agent for its n-th sample
+public abstract class TrafficShape {
+
+    public abstract double download(int agent, long sample);
+
+    public abstract double upload(int agent, long sample);
+
+    // constant[:kbps] | sine[:peakKbps[:periodSamples]] | burst[:baseKbps[:peakKbps]] | replay:<csv file>
+    public static TrafficShape parse(String spec) throws IOException {
+        String[] parts = spec.split(":", 2);
+        String name = parts[0];
+        String[] args = parts.length > 1 ? parts[1].split(":") : new String[0];
+        switch (name) {
+            case "constant":
+                return new Constant(arg(args, 0, 512));
+            case "sine":
+                return new Sine(arg(args, 0, 2048), (long) arg(args, 1, 60));
+            case "burst":
+                return new Burst(arg(args, 0, 64), arg(args, 1, 8192));
+            case "replay":
+                if (parts.length < 2) {
+                    throw new IllegalArgumentException("replay needs a CSV file: replay:<file>");
+                }
+                return Replay.load(parts[1]);
+            default:
+                throw new IllegalArgumentException("Unknown traffic shape: " + spec);
+        }
+    }
+
+    private static double arg(String[] args, int index, double defaultValue) {
+        return args.length > index ? Double.parseDouble(args[index]) : defaultValue;
+    }
+
+    private static final class Constant extends TrafficShape {
+        private final double kbps;
+
+        Constant(double kbps) {
+            this.kbps = kbps;
+        }
+
+        @Override
+        public double download(int agent, long sample) {
+            return kbps;
+        }
+
+        @Override
+        public double upload(int agent, long sample) {
+            return kbps / 8;
+        }
+    }
+
+    // Smooth swing between zero and peak, each agent phase-shifted so the fleet isn't in lockstep
+    private static final class Sine extends TrafficShape {
+        private final double peakKbps;
+        private final long periodSamples;
+
+        Sine(double peakKbps, long periodSamples) {
+            this.peakKbps = peakKbps;
+            this.periodSamples = Math.max(2, periodSamples);
+        }
+
+        @Override
+        public double download(int agent, long sample) {
+            double phase = 2 * Math.PI * ((sample + agent * 7L) % periodSamples) / periodSamples;
+            return peakKbps * (0.5 + 0.5 * Math.sin(phase));
+        }
+
+        @Override
+        public double upload(int agent, long sample) {
+            return download(agent, sample) / 8;
+        }
+    }
+
+    // Mostly idle with occasional spikes, deterministic per agent and sample
+    private static final class Burst extends TrafficShape {
+        private final double baseKbps;
+        private final double peakKbps;
+
+        Burst(double baseKbps, double peakKbps) {
+            this.baseKbps = baseKbps;
+            this.peakKbps = peakKbps;
+        }
+
+        @Override
+        public double download(int agent, long sample) {
+            long hash = (agent * 0x9E3779B97F4A7C15L) ^ (sample * 0xC2B2AE3D27D4EB4FL);
+            hash ^= hash >>> 31;
+            return (hash & 15) == 0 ? peakKbps : baseKbps;
+        }
+
+        @Override
+        public double upload(int agent, long sample) {
+            return download(agent, sample) / 8;
+        }
+    }
+
+    // Recorded "download,upload" rows in KB/s, each agent starts at a different offset
+    private static final class Replay extends TrafficShape {
+        private final double[] downloads;
+        private final double[] uploads;
+
+        private Replay(double[] downloads, double[] uploads) {
+            this.downloads = downloads;
+            this.uploads = uploads;
+        }
+
+        static Replay load(String file) throws IOException {
+            List<double[]> rows = new ArrayList<>();
+            try (BufferedReader reader = Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    line = line.trim();
+                    if (line.isEmpty() || line.startsWith("#") || !Character.isDigit(line.charAt(0))) {
+                        continue;
+                    }
+                    String[] fields = line.split(",");
+                    rows.add(new double[]{Double.parseDouble(fields[0].trim()), Double.parseDouble(fields[1].trim())});
+                }
+            }
+            if (rows.isEmpty()) {
+                throw new IOException("No samples in " + file);
+            }
+            double[] downloads = new double[rows.size()];
+            double[] uploads = new double[rows.size()];
+            for (int i = 0; i < rows.size(); i++) {
+                downloads[i] = rows.get(i)[0];
+                uploads[i] = rows.get(i)[1];
+            }
+            return new Replay(downloads, uploads);
+        }
+
+        @Override
+        public double download(int agent, long sample) {
+            return downloads[(int) ((sample + agent) % downloads.length)];
+        }
+
+        @Override
+        public double upload(int agent, long sample) {
+            return uploads[(int) ((sample + agent) % uploads.length)];
+        }
+    }
+}
@@ -0,0 +1,841 @@
+package bandwidthmonitor;
+
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+import javax.swing.border.TitledBorder;
+import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.text.DecimalFormat;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.awt.geom.Path2D;
+
+public class BandwidthMonitorClient extends JFrame implements NetworkMonitor.NetworkDataListener {
+    private static final String SERVER_ADDRESS = System.getProperty("bandwidth.server.host", "localhost");
+    private static final int SERVER_PORT = Integer.getInteger("bandwidth.server.port", 9999);
+    private static final int THROUGHPUT_PORT = Integer.getInteger("bandwidth.throughput.port", SERVER_PORT + 1);
+    // Stable id the server cluster hashes on, so an agent lands on the same node after reconnecting.
+    // Resolved on first connect rather than at class load, see defaultAgentId().
+    private static volatile String agentId;
+    private static final int UPDATE_INTERVAL = 1000; // ms
+    private static final int HISTORY_SIZE = 60; // Number of data points to keep
+    private static final int DISPLAY_FPS = Integer.getInteger("bandwidth.display.fps", 30); // UI refresh rate
+
+    private final NetworkMonitor networkMonitor;
+    private final NetworkInfo networkInfo = new NetworkInfo();
+    private final ClientMetrics metrics = new ClientMetrics(HISTORY_SIZE);
+
+    // Version of the last snapshot drawn; written on the EDT, read by metrics scrapes
+    private volatile long renderedVersion = 0;
+
+    // Latest fleet view from the server, drained by the display timer into fleetHistory
+    private final AtomicReference<FleetUpdate> pendingFleetUpdate = new AtomicReference<>();
+    private final FleetHistory fleetHistory = new FleetHistory(HISTORY_SIZE);
+    private final DecimalFormat speedFormat = new DecimalFormat("#,###.##");
+    private Timer displayTimer;
+    private Timer networkNameTimer;
+
+    private BandwidthGraph bandwidthGraph;
+    private FleetView fleetView;
+    private JLabel downloadSpeedLabel;
+    private JLabel uploadSpeedLabel;
+    private JLabel totalDownloadedLabel;
+    private JLabel totalUploadedLabel;
+    private JLabel latencyLabel;
+    private JLabel packetLossLabel;
+    private JLabel publicIpLabel; // New label for Public IP
+    private JLabel ispLabel; // New label for ISP
+    private JLabel networkNameLabel; // New label for Network Name
+    private JComboBox<String> interfaceSelector;
+
+    // Server currently talked to; a cluster node may redirect us elsewhere. Sender thread only.
+    private String serverHost = SERVER_ADDRESS;
+    private int serverPort = SERVER_PORT;
+    private int redirects = 0; // Redirects followed since the last regular reply
+    private boolean fleetSubscribed; // What the server was last told about fleet updates
+    private volatile boolean fleetVisible; // Fleet tab is showing; written on the EDT
+
+    private Socket socket;
+    private ObjectOutputStream output;
+    private ObjectInputStream input;
+    private CountingOutputStream wireOutput;
+    private CountingInputStream wireInput;
+    private long countedBytesSent; // Wire bytes already added to PipelineMetrics, sender thread only
+    private long countedBytesReceived;
+    private final ScheduledExecutorService serverCommunicationScheduler = Executors.newScheduledThreadPool(1);
+
+    public BandwidthMonitorClient() {
+        // Initialize the UI
+        setTitle("Smart Bandwidth Monitor");
+        setSize(900, 600);
+        setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        setLocationRelativeTo(null);
+
+        // Set up network monitoring
+        networkMonitor = new NetworkMonitor(UPDATE_INTERVAL);
+        networkMonitor.addListener(this);
+
+        // Initialize UI components
+        initializeUI();
+
+        // Expose the UI backlog alongside the pipeline metrics
+        PipelineMetrics.gauge("bandwidth_client_unrendered_samples", "Samples recorded but not yet drawn by the UI",
+                () -> metrics.snapshot().getVersion() - renderedVersion);
+        MetricsEndpoint.startIfConfigured();
+
+        // Start the frame-paced display refresh
+        startDisplayTimer();
+
+        // Connect to the server
+        connectToServer();
+
+        // Start network monitoring
+        networkMonitor.start();
+
+        // Update network info (Public IP, ISP, and Network Name)
+        updateNetworkInfo();
+
+        // Set up window close event
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                cleanup();
+            }
+        });
+    }
+
+    private void initializeUI() {
+        // Set the look and feel to the system look and feel
+        try {
+            UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+
+        // Create the main panel with BorderLayout
+        JPanel mainPanel = new JPanel(new BorderLayout(10, 10));
+        mainPanel.setBorder(new EmptyBorder(10, 10, 10, 10));
+
+        // Create the graph panel
+        bandwidthGraph = new BandwidthGraph();
+        JPanel graphPanel = new JPanel(new BorderLayout());
+        graphPanel.setBorder(BorderFactory.createTitledBorder(BorderFactory.createEtchedBorder(),
+                "Network Traffic", TitledBorder.LEFT, TitledBorder.TOP,
+                new Font("Sans-Serif", Font.BOLD, 14)));
+        graphPanel.add(bandwidthGraph, BorderLayout.CENTER);
+
+        // Create the fleet panel with every agent reported by the server
+        fleetView = new FleetView(fleetHistory);
+        JScrollPane fleetScrollPane = new JScrollPane(fleetView);
+        fleetScrollPane.getVerticalScrollBar().setUnitIncrement(FleetView.ROW_HEIGHT);
+        JPanel fleetPanel = new JPanel(new BorderLayout());
+        fleetPanel.setBorder(BorderFactory.createTitledBorder(BorderFactory.createEtchedBorder(),
+                "Fleet", TitledBorder.LEFT, TitledBorder.TOP,
+                new Font("Sans-Serif", Font.BOLD, 14)));
+        fleetPanel.add(fleetScrollPane, BorderLayout.CENTER);
+
+        JTabbedPane viewTabs = new JTabbedPane();
+        viewTabs.addTab("This Machine", graphPanel);
+        viewTabs.addTab("Fleet", fleetPanel);
+        viewTabs.addTab("Throughput Test", createThroughputPanel());
+        // Only ask the server for the fleet while someone is looking at it
+        viewTabs.addChangeListener(e -> fleetVisible = viewTabs.getSelectedComponent() == fleetPanel);
+
+        // Create the stats panel
+        JPanel statsPanel = createStatsPanel();
+
+        // Create the control panel
+        JPanel controlPanel = createControlPanel();
+
+        // Add panels to the main panel
+        mainPanel.add(viewTabs, BorderLayout.CENTER);
+        mainPanel.add(statsPanel, BorderLayout.EAST);
+        mainPanel.add(controlPanel, BorderLayout.SOUTH);
+
+        setContentPane(mainPanel);
+    }
+
+    private JPanel createStatsPanel() {
+        JPanel statsPanel = new JPanel();
+        statsPanel.setLayout(new BoxLayout(statsPanel, BoxLayout.Y_AXIS));
+        statsPanel.setBorder(BorderFactory.createTitledBorder(BorderFactory.createEtchedBorder(),
+                "Network Statistics", TitledBorder.LEFT, TitledBorder.TOP,
+                new Font("Sans-Serif", Font.BOLD, 14)));
+        statsPanel.setPreferredSize(new Dimension(200, 0));
+
+        // Create labels for stats
+        downloadSpeedLabel = new JLabel("Download: 0 KB/s");
+        uploadSpeedLabel = new JLabel("Upload: 0 KB/s");
+        totalDownloadedLabel = new JLabel("Total Downloaded: 0 KB");
+        totalUploadedLabel = new JLabel("Total Uploaded: 0 KB");
+        latencyLabel = new JLabel("Latency: 0 ms");
+        packetLossLabel = new JLabel("Packet Loss: 0%");
+        publicIpLabel = new JLabel("Public IP: Unknown"); // New label
+        ispLabel = new JLabel("ISP: Unknown"); // New label
+        networkNameLabel = new JLabel("Network: Unknown"); // New label
+
+        // Set font for all labels
+        Font statFont = new Font("Sans-Serif", Font.PLAIN, 12);
+        downloadSpeedLabel.setFont(statFont);
+        uploadSpeedLabel.setFont(statFont);
+        totalDownloadedLabel.setFont(statFont);
+        totalUploadedLabel.setFont(statFont);
+        latencyLabel.setFont(statFont);
+        packetLossLabel.setFont(statFont);
+        publicIpLabel.setFont(statFont); // Set font for Public IP label
+        ispLabel.setFont(statFont); // Set font for ISP label
+        networkNameLabel.setFont(statFont); // Set font for Network Name label
+
+        // Add labels to panel with padding
+        addLabelToPanel(statsPanel, downloadSpeedLabel);
+        addLabelToPanel(statsPanel, uploadSpeedLabel);
+        addLabelToPanel(statsPanel, totalDownloadedLabel);
+        addLabelToPanel(statsPanel, totalUploadedLabel);
+        addLabelToPanel(statsPanel, latencyLabel);
+        addLabelToPanel(statsPanel, packetLossLabel);
+        addLabelToPanel(statsPanel, publicIpLabel); // Add Public IP label
+        addLabelToPanel(statsPanel, ispLabel); // Add ISP label
+        addLabelToPanel(statsPanel, networkNameLabel); // Add Network Name label
+
+        // Add filler to push everything to the top
+        statsPanel.add(Box.createVerticalGlue());
+
+        return statsPanel;
+    }
+
+    // On-demand active test against the server's throughput test port
+    private JPanel createThroughputPanel() {
+        JPanel panel = new JPanel(new BorderLayout());
+        panel.setBorder(BorderFactory.createTitledBorder(BorderFactory.createEtchedBorder(),
+                "Throughput Test", TitledBorder.LEFT, TitledBorder.TOP,
+                new Font("Sans-Serif", Font.BOLD, 14)));
+
+        JComboBox<ThroughputTest.Direction> directionSelector = new JComboBox<>(ThroughputTest.Direction.values());
+        JSpinner streamsSpinner = new JSpinner(new SpinnerNumberModel(4, 1, ThroughputTest.MAX_STREAMS, 1));
+        JSpinner secondsSpinner = new JSpinner(
+                new SpinnerNumberModel(10, 1, ThroughputTest.MAX_DURATION_MS / 1000, 1));
+        JButton runButton = new JButton("Run Test");
+        JTextArea results = new JTextArea("Measures what the path to " + SERVER_ADDRESS + " can carry.\n");
+        results.setEditable(false);
+        results.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+
+        JPanel settings = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        settings.add(new JLabel("Direction: "));
+        settings.add(directionSelector);
+        settings.add(new JLabel("Streams: "));
+        settings.add(streamsSpinner);
+        settings.add(new JLabel("Seconds: "));
+        settings.add(secondsSpinner);
+        settings.add(runButton);
+
+        runButton.addActionListener(e -> {
+            ThroughputTest.Direction direction = (ThroughputTest.Direction) directionSelector.getSelectedItem();
+            int streams = (Integer) streamsSpinner.getValue();
+            int seconds = (Integer) secondsSpinner.getValue();
+            runButton.setEnabled(false);
+            results.setText("Running " + direction + " test for " + seconds + " s...\n");
+            new SwingWorker<String, Void>() {
+                @Override
+                protected String doInBackground() throws Exception {
+                    return new ThroughputTest(SERVER_ADDRESS, THROUGHPUT_PORT)
+                            .run(direction, streams, seconds * 1000).format();
+                }
+
+                @Override
+                protected void done() {
+                    try {
+                        results.setText(get());
+                    } catch (Exception error) {
+                        Throwable cause = error.getCause() != null ? error.getCause() : error;
+                        results.setText("Throughput test failed: " + cause.getMessage() + "\n");
+                    }
+                    runButton.setEnabled(true);
+                }
+            }.execute();
+        });
+
+        panel.add(settings, BorderLayout.NORTH);
+        panel.add(new JScrollPane(results), BorderLayout.CENTER);
+        return panel;
+    }
+
+    private void addLabelToPanel(JPanel panel, JLabel label) {
+        JPanel wrapper = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        wrapper.add(label);
+        panel.add(wrapper);
+        panel.add(Box.createVerticalStrut(5)); // Add some space between labels
+    }
+
+    private JPanel createControlPanel() {
+        JPanel controlPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        controlPanel.setBorder(BorderFactory.createTitledBorder(BorderFactory.createEtchedBorder(),
+                "Controls", TitledBorder.LEFT, TitledBorder.TOP,
+                new Font("Sans-Serif", Font.BOLD, 14)));
+
+        // Interface selector
+        JLabel interfaceLabel = new JLabel("Network Interface: ");
+        interfaceSelector = new JComboBox<>();
+
+        // Populate interface selector
+        try {
+            List<String> interfaces = networkMonitor.getNetworkInterfaces();
+            for (String iface : interfaces) {
+                interfaceSelector.addItem(iface);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+
+        // Add action listener to interface selector
+        interfaceSelector.addActionListener(e -> {
+            String selectedInterface = (String) interfaceSelector.getSelectedItem();
+            networkMonitor.setNetworkInterface(selectedInterface);
+        });
+
+        // Add components to panel
+        controlPanel.add(interfaceLabel);
+        controlPanel.add(interfaceSelector);
+
+        return controlPanel;
+    }
+
+    // Show cached Public IP, ISP and Network Name right away, then refresh them in the background
+    public void updateNetworkInfo() {
+        String cachedPublicIp = networkInfo.getCachedPublicIP();
+        String cachedIsp = networkInfo.getCachedISP();
+        String cachedNetworkName = networkInfo.getCachedNetworkName();
+        if (cachedPublicIp != null) {
+            publicIpLabel.setText("Public IP: " + cachedPublicIp);
+        }
+        if (cachedIsp != null) {
+            ispLabel.setText("ISP: " + cachedIsp);
+        }
+        if (cachedNetworkName != null) {
+            networkNameLabel.setText("Network: " + cachedNetworkName);
+        }
+
+        // The lookups never block the EDT; results are applied on the Event Dispatch Thread
+        networkInfo.getPublicIPAsync().thenAccept(publicIp ->
+                SwingUtilities.invokeLater(() -> publicIpLabel.setText("Public IP: " + publicIp)));
+        networkInfo.getISPAsync().thenAccept(isp ->
+                SwingUtilities.invokeLater(() -> ispLabel.setText("ISP: " + isp)));
+        refreshNetworkName();
+
+        // The network name changes whenever the user switches Wi-Fi, so keep asking
+        networkNameTimer = new Timer((int) networkInfo.getNetworkNameTtlMillis(), e -> refreshNetworkName());
+        networkNameTimer.start();
+    }
+
+    private void refreshNetworkName() {
+        networkInfo.getNetworkNameAsync().thenAccept(networkName ->
+                SwingUtilities.invokeLater(() -> networkNameLabel.setText("Network: " + networkName)));
+    }
+
+    
+    // Rest of the code remains the same...
+    // (connectToServer, onNetworkDataUpdated, formatDataSize, cleanup, etc.)
+
+
+    private void openConnection() throws IOException {
+        socket = new Socket(serverHost, serverPort);
+        wireOutput = new CountingOutputStream(socket.getOutputStream());
+        wireInput = new CountingInputStream(socket.getInputStream());
+        output = new ObjectOutputStream(wireOutput);
+        input = new ObjectInputStream(wireInput);
+        countedBytesSent = 0;
+        countedBytesReceived = 0;
+        fleetSubscribed = false;
+
+        // Identify ourselves so a clustered server can route us to the node that owns this agent
+        output.writeObject(new ClusterMessage.AgentHello(agentId(), redirects));
+        output.flush();
+    }
+
+    // Reconnects to the node the server named; falls back to the configured server if it is unreachable
+    private void followRedirect(String node) throws IOException {
+        socket.close();
+        int colon = node.lastIndexOf(':');
+        serverHost = node.substring(0, colon);
+        serverPort = Integer.parseInt(node.substring(colon + 1));
+        redirects++;
+        try {
+            openConnection();
+            System.out.println("Redirected to server at " + node);
+        } catch (IOException e) {
+            serverHost = SERVER_ADDRESS;
+            serverPort = SERVER_PORT;
+            throw e;
+        }
+    }
+
+    private static String agentId() {
+        String id = agentId;
+        if (id == null) {
+            id = System.getProperty("bandwidth.agent.id");
+            if (id == null) {
+                id = defaultAgentId();
+            }
+            agentId = id;
+        }
+        return id;
+    }
+
+    // Host name and PID. The environment is asked first: a DNS lookup of the local host name can
+    // stall for seconds on hosts whose name doesn't resolve.
+    private static String defaultAgentId() {
+        String host = System.getenv("HOSTNAME");
+        if (host == null || host.isEmpty()) {
+            host = System.getenv("COMPUTERNAME");
+        }
+        if (host == null || host.isEmpty()) {
+            try {
+                host = InetAddress.getLocalHost().getHostName();
+            } catch (IOException e) {
+                host = "localhost";
+            }
+        }
+        return host + "-" + ProcessHandle.current().pid();
+    }
+
+    // Adds the bytes moved since the last call to the process-wide wire counters
+    private void recordWireBytes() {
+        long sent = wireOutput.getBytes();
+        long received = wireInput.getBytes();
+        PipelineMetrics.CLIENT_BYTES_SENT.add(sent - countedBytesSent);
+        PipelineMetrics.CLIENT_BYTES_RECEIVED.add(received - countedBytesReceived);
+        countedBytesSent = sent;
+        countedBytesReceived = received;
+    }
+
+    private void connectToServer() {
+        try {
+            openConnection();
+
+            System.out.println("Connected to server at " + serverHost + ":" + serverPort);
+
+            // Schedule sending data to server
+            serverCommunicationScheduler.scheduleAtFixedRate(() -> {
+                try {
+                    if (socket != null && !socket.isClosed() && socket.isConnected()) {
+                        // Read the shared metrics snapshot, never the Swing labels
+                        ClientMetrics.Snapshot snapshot = metrics.snapshot();
+                        if (!snapshot.isEmpty()) {
+                            boolean wantsFleet = fleetVisible;
+                            if (wantsFleet != fleetSubscribed) {
+                                output.writeObject(new FleetUpdate.Subscribe(wantsFleet));
+                                fleetSubscribed = wantsFleet;
+                            }
+                            output.writeObject(snapshot.toNetworkData());
+                            output.flush();
+                            // Drop the stream's back-references so long-lived connections don't grow
+                            output.reset();
+                            PipelineMetrics.CLIENT_FRAMES_SENT.increment();
+
+                            // The server replies with the fleet view when subscribed and it changed
+                            Object response = input.readObject();
+                            PipelineMetrics.CLIENT_FRAMES_RECEIVED.increment();
+                            recordWireBytes();
+                            if (response instanceof FleetUpdate) {
+                                redirects = 0;
+                                pendingFleetUpdate.set((FleetUpdate) response);
+                            } else if (response instanceof FleetUpdate.Unchanged) {
+                                redirects = 0;
+                            } else if (response instanceof ClusterMessage.Redirect) {
+                                followRedirect(((ClusterMessage.Redirect) response).getNode());
+                            }
+                        }
+                    }
+                } catch (IOException | ClassNotFoundException e) {
+                    System.out.println("Server communication error: " + e.getMessage());
+                    // Try to reconnect
+                    PipelineEvents.ReconnectEvent event = new PipelineEvents.ReconnectEvent();
+                    event.begin();
+                    try {
+                        if (socket != null) socket.close();
+                        openConnection();
+                        PipelineMetrics.CLIENT_RECONNECTS.increment();
+                        event.succeeded = true;
+                        System.out.println("Reconnected to server");
+                    } catch (IOException reconnectError) {
+                        // A node we were redirected to may be gone; start over from the configured server
+                        serverHost = SERVER_ADDRESS;
+                        serverPort = SERVER_PORT;
+                        redirects = 0;
+                        PipelineMetrics.CLIENT_RECONNECT_FAILURES.increment();
+                        System.out.println("Failed to reconnect: " + reconnectError.getMessage());
+                    }
+                    event.end();
+                    if (event.shouldCommit()) {
+                        event.cause = e.getMessage();
+                        event.commit();
+                    }
+                }
+            }, 2000, 2000, TimeUnit.MILLISECONDS);
+
+        } catch (IOException e) {
+            System.out.println("Could not connect to server: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void onNetworkDataUpdated(NetworkData data) {
+        // Only publish the sample; rendering happens once per frame on the display timer
+        metrics.record(data);
+    }
+
+    private void startDisplayTimer() {
+        int frameDelay = Math.max(1, 1000 / Math.max(1, DISPLAY_FPS));
+        displayTimer = new Timer(frameDelay, e -> renderSnapshot());
+        displayTimer.setCoalesce(true);
+        displayTimer.start();
+    }
+
+    // Runs on the EDT at most once per frame, regardless of how fast samples arrive
+    private void renderSnapshot() {
+        FleetUpdate fleetUpdate = pendingFleetUpdate.getAndSet(null);
+        if (fleetUpdate != null) {
+            fleetHistory.apply(fleetUpdate);
+            fleetView.dataChanged();
+        }
+
+        ClientMetrics.Snapshot snapshot = metrics.snapshot();
+        if (snapshot.getVersion() == renderedVersion) {
+            return;
+        }
+        renderedVersion = snapshot.getVersion();
+
+        // Update speed labels
+        downloadSpeedLabel.setText("Download: " + speedFormat.format(snapshot.getDownloadSpeed()) + " KB/s");
+        uploadSpeedLabel.setText("Upload: " + speedFormat.format(snapshot.getUploadSpeed()) + " KB/s");
+
+        // Format total data with appropriate units
+        String totalDownloadedText = formatDataSize(snapshot.getTotalDownloaded());
+        String totalUploadedText = formatDataSize(snapshot.getTotalUploaded());
+
+        totalDownloadedLabel.setText("Total Downloaded: " + totalDownloadedText);
+        totalUploadedLabel.setText("Total Uploaded: " + totalUploadedText);
+
+        // Update latency and packet loss
+        latencyLabel.setText("Latency: " + snapshot.getLatency() + " ms");
+        packetLossLabel.setText("Packet Loss: " + snapshot.getPacketLoss() + "%");
+
+        // Update the graph data
+        bandwidthGraph.updateData(snapshot.getDownloadHistory(), snapshot.getUploadHistory());
+    }
+
+    private String formatDataSize(long sizeInKB) {
+        DecimalFormat df = new DecimalFormat("#,###.##");
+
+        if (sizeInKB < 1024) {
+            return df.format(sizeInKB) + " KB";
+        } else if (sizeInKB < 1024 * 1024) {
+            return df.format(sizeInKB / 1024.0) + " MB";
+        } else {
+            return df.format(sizeInKB / (1024.0 * 1024.0)) + " GB";
+        }
+    }
+
+    private void cleanup() {
+        // Stop the network monitor
+        networkMonitor.stop();
+
+        // Stop the display refresh
+        if (displayTimer != null) {
+            displayTimer.stop();
+        }
+        if (networkNameTimer != null) {
+            networkNameTimer.stop();
+        }
+
+        // Shutdown the scheduler
+        serverCommunicationScheduler.shutdown();
+
+        // Close the socket
+        try {
+            if (socket != null && !socket.isClosed()) {
+                socket.close();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    public static void main(String[] args) {
+        SwingUtilities.invokeLater(() -> {
+            new BandwidthMonitorClient().setVisible(true);
+        });
+    }
+
+    // Inner class for the bandwidth graph, package-private so it can be benchmarked offscreen
+    static class BandwidthGraph extends JPanel {
+        private double[] downloadData = new double[0];
+        private double[] uploadData = new double[0];
+        private double maxValue = 100.0; // Initial max value in KB/s
+
+        public BandwidthGraph() {
+            setPreferredSize(new Dimension(600, 300));
+            setBackground(Color.WHITE);
+        }
+
+        // The arrays come from an immutable snapshot, so they are kept without copying
+        public void updateData(double[] downloadData, double[] uploadData) {
+            this.downloadData = downloadData;
+            this.uploadData = uploadData;
+
+            // Find the max value for scaling
+            maxValue = 100.0; // Default minimum
+            for (double value : downloadData) {
+                maxValue = Math.max(maxValue, value * 1.1); // Add 10% margin
+            }
+            for (double value : uploadData) {
+                maxValue = Math.max(maxValue, value * 1.1); // Add 10% margin
+            }
+
+            repaint();
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            super.paintComponent(g);
+            Graphics2D g2d = (Graphics2D) g.create();
+
+            // Enable anti-aliasing
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+            int width = getWidth();
+            int height = getHeight();
+            int padding = 40;
+            int labelPadding = 20;
+
+            int chartWidth = width - 2 * padding;
+            int chartHeight = height - 2 * padding;
+
+            // Draw grid
+            g2d.setColor(Color.LIGHT_GRAY);
+            g2d.setStroke(new BasicStroke(1f, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND, 10f, new float[]{5f}, 0f));
+
+            // Draw horizontal grid lines
+            int numHorizontalLines = 5;
+            for (int i = 0; i <= numHorizontalLines; i++) {
+                int y = padding + chartHeight - (i * chartHeight / numHorizontalLines);
+                g2d.drawLine(padding, y, width - padding, y);
+
+                // Draw labels
+                DecimalFormat df = new DecimalFormat("#,###");
+                String label = df.format((maxValue * i / numHorizontalLines)) + " KB/s";
+                FontMetrics metrics = g2d.getFontMetrics();
+                int labelWidth = metrics.stringWidth(label);
+                g2d.setColor(Color.BLACK);
+                g2d.drawString(label, padding - labelWidth - 5, y + (metrics.getHeight() / 2) - 3);
+                g2d.setColor(Color.LIGHT_GRAY);
+            }
+
+            // Draw vertical grid lines
+            int numVerticalLines = 6;
+            for (int i = 0; i <= numVerticalLines; i++) {
+                int x = padding + (i * chartWidth / numVerticalLines);
+                g2d.drawLine(x, padding, x, height - padding);
+
+                // Draw time labels (assuming 1-second intervals and HISTORY_SIZE points)
+                if (i < numVerticalLines) {
+                    String label = "-" + (HISTORY_SIZE - i * HISTORY_SIZE / numVerticalLines) + "s";
+                    FontMetrics metrics = g2d.getFontMetrics();
+                    int labelWidth = metrics.stringWidth(label);
+                    g2d.setColor(Color.BLACK);
+                    g2d.drawString(label, x - labelWidth / 2, height - padding + metrics.getHeight() + 3);
+                    g2d.setColor(Color.LIGHT_GRAY);
+                }
+            }
+
+            // Draw axis labels
+            g2d.setColor(Color.BLACK);
+            g2d.setFont(new Font("Sans-Serif", Font.BOLD, 12));
+
+            // Y-axis label
+            String yLabel = "Speed (KB/s)";
+            FontMetrics metrics = g2d.getFontMetrics();
+            int labelWidth = metrics.stringWidth(yLabel);
+            g2d.translate(15, height / 2 + labelWidth / 2);
+            g2d.rotate(-Math.PI / 2);
+            g2d.drawString(yLabel, 0, 0);
+            g2d.rotate(Math.PI / 2);
+            g2d.translate(-15, -(height / 2 + labelWidth / 2));
+
+            // X-axis label
+            String xLabel = "Time (seconds)";
+            labelWidth = metrics.stringWidth(xLabel);
+            g2d.drawString(xLabel, width / 2 - labelWidth / 2, height - 10);
+
+            // Draw the data
+            if (downloadData.length > 1 && uploadData.length > 1) {
+                // Draw download speed (blue)
+                g2d.setColor(new Color(0, 102, 204));
+                g2d.setStroke(new BasicStroke(2f));
+                drawLine(g2d, downloadData, padding, chartWidth, chartHeight);
+
+                // Draw upload speed (red)
+                g2d.setColor(new Color(204, 0, 0));
+                g2d.setStroke(new BasicStroke(2f));
+                drawLine(g2d, uploadData, padding, chartWidth, chartHeight);
+            }
+
+            // Draw legend
+            int legendX = width - padding - 120;
+            int legendY = padding + 20;
+            int legendItemHeight = 20;
+
+            g2d.setFont(new Font("Sans-Serif", Font.PLAIN, 12));
+
+            // Download legend
+            g2d.setColor(new Color(0, 102, 204));
+            g2d.fillRect(legendX, legendY, 15, 10);
+            g2d.setColor(Color.BLACK);
+            g2d.drawString("Download", legendX + 20, legendY + 10);
+
+            // Upload legend
+            g2d.setColor(new Color(204, 0, 0));
+            g2d.fillRect(legendX, legendY + legendItemHeight, 15, 10);
+            g2d.setColor(Color.BLACK);
+            g2d.drawString("Upload", legendX + 20, legendY + legendItemHeight + 10);
+
+            g2d.dispose();
+        }
+
+        private void drawLine(Graphics2D g2d, double[] data, int padding, int chartWidth, int chartHeight) {
+            int xPadding = padding;
+            int yPadding = padding;
+
+            int dataSize = data.length;
+
+            // Create path for the line
+            
+            Path2D.Double path = new Path2D.Double();
+            
+            for (int i = 0; i < dataSize; i++) {
+                double x = xPadding + ((double) i / (dataSize - 1)) * chartWidth;
+                double y = yPadding + chartHeight - ((data[i] / maxValue) * chartHeight);
+                
+                if (i == 0) {
+                    path.moveTo(x, y);
+                } else {
+                    path.lineTo(x, y);
+                }
+                
+                // Draw points
+                g2d.fillOval((int) x - 3, (int) y - 3, 6, 6);
+            }
+            
+            // Draw the line
+            g2d.draw(path);
+            
+            // Draw filled area beneath the line with transparency
+            Color lineColor = g2d.getColor();
+            Color fillColor = new Color(lineColor.getRed(), lineColor.getGreen(), lineColor.getBlue(), 40);
+            g2d.setColor(fillColor);
+            
+            Path2D.Double fillPath = new Path2D.Double(path);
+            fillPath.lineTo(xPadding + chartWidth, yPadding + chartHeight);
+            fillPath.lineTo(xPadding, yPadding + chartHeight);
+            fillPath.closePath();
+            
+            g2d.fill(fillPath);
+        }
+    }
+
+    // Inner class for the fleet sparkline list, only the rows inside the viewport are painted
+    static class FleetView extends JComponent {
+        static final int ROW_HEIGHT = 28;
+        private static final int ID_WIDTH = 180;
+        private static final int RATE_WIDTH = 110;
+        private static final Color SPARK_COLOR = new Color(0, 102, 204);
+        private static final Color STRIPE_COLOR = new Color(245, 245, 245);
+
+        private final FleetHistory history;
+        private final DecimalFormat rateFormat = new DecimalFormat("#,###.##");
+        // Reused for every row so painting doesn't allocate per agent
+        private final float[] points;
+        private final int[] xPoints;
+        private final int[] yPoints;
+
+        public FleetView(FleetHistory history) {
+            this.history = history;
+            this.points = new float[history.getHistorySize()];
+            this.xPoints = new int[history.getHistorySize()];
+            this.yPoints = new int[history.getHistorySize()];
+            setOpaque(true);
+            setBackground(Color.WHITE);
+            setFont(new Font("Sans-Serif", Font.PLAIN, 12));
+        }
+
+        public void dataChanged() {
+            Dimension size = new Dimension(ID_WIDTH + RATE_WIDTH + 200, history.size() * ROW_HEIGHT);
+            if (!size.equals(getPreferredSize())) {
+                setPreferredSize(size);
+                revalidate();
+            }
+            repaint();
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            Rectangle clip = g.getClipBounds();
+            if (clip == null) {
+                clip = new Rectangle(0, 0, getWidth(), getHeight());
+            }
+            g.setColor(getBackground());
+            g.fillRect(clip.x, clip.y, clip.width, clip.height);
+
+            Graphics2D g2d = (Graphics2D) g.create();
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            FontMetrics metrics = g2d.getFontMetrics();
+
+            // Only the rows intersecting the clip are touched
+            int firstRow = Math.max(0, clip.y / ROW_HEIGHT);
+            int lastRow = Math.min(history.size() - 1, (clip.y + clip.height) / ROW_HEIGHT);
+            int sparkX = ID_WIDTH + RATE_WIDTH;
+            int sparkWidth = Math.max(10, getWidth() - sparkX - 10);
+
+            for (int row = firstRow; row <= lastRow; row++) {
+                int slot = history.slotAt(row);
+                int top = row * ROW_HEIGHT;
+                int textY = top + (ROW_HEIGHT + metrics.getAscent()) / 2 - 2;
+
+                if (row % 2 == 1) {
+                    g2d.setColor(STRIPE_COLOR);
+                    g2d.fillRect(0, top, getWidth(), ROW_HEIGHT);
+                }
+
+                g2d.setColor(Color.BLACK);
+                g2d.drawString(history.getAgentId(slot), 8, textY);
+                g2d.drawString(rateFormat.format(history.getCurrentRate(slot)) + " KB/s", ID_WIDTH, textY);
+
+                int count = history.copyHistory(slot, points);
+                if (count > 1) {
+                    float max = 1f;
+                    for (int i = 0; i < count; i++) {
+                        max = Math.max(max, points[i]);
+                    }
+                    int sparkTop = top + 4;
+                    int sparkHeight = ROW_HEIGHT - 8;
+                    for (int i = 0; i < count; i++) {
+                        xPoints[i] = sparkX + i * sparkWidth / (points.length - 1);
+                        yPoints[i] = sparkTop + sparkHeight - Math.round(points[i] / max * sparkHeight);
+                    }
+                    g2d.setColor(SPARK_COLOR);
+                    g2d.drawPolyline(xPoints, yPoints, count);
+                }
+            }
+
+            g2d.dispose();
+        }
+    }
+}
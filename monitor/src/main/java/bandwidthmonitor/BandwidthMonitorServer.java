@@ -0,0 +1,270 @@
+package bandwidthmonitor;
+
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+public class BandwidthMonitorServer {
+    private static final int DEFAULT_PORT = 9999;
+    private static final long FLEET_REFRESH_MS = 1000; // How often the shared fleet view is rebuilt
+    private static final int FLEET_LIMIT = Integer.getInteger("bandwidth.fleet.limit", 0); // Top-K agents, 0 for all
+    private static final FleetUpdate.Unchanged UNCHANGED = new FleetUpdate.Unchanged();
+    // Logging every sample costs more than ingesting it, so it is off unless asked for
+    private static final boolean VERBOSE = Boolean.getBoolean("bandwidth.server.verbose");
+    private static final ConcurrentHashMap<String, ClientHandler> clients = new ConcurrentHashMap<>();
+
+    // Set when -Dbandwidth.cluster.nodes is given; null for a standalone server
+    private static volatile ClusterNode cluster;
+
+    // Fleet view shared by all handlers, rebuilt at most once per FLEET_REFRESH_MS
+    private static volatile FleetUpdate fleetUpdate = new FleetUpdate(new String[0], new double[0], new double[0]);
+    private static volatile long fleetUpdateTime = 0;
+
+    static {
+        PipelineMetrics.gauge("bandwidth_server_connections", "Currently connected agents", clients::size);
+        PipelineMetrics.register(BandwidthMonitorServer::writeConnectionMetrics);
+    }
+
+    public static void main(String[] args) {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : Integer.getInteger("bandwidth.server.port", DEFAULT_PORT);
+        System.out.println("Bandwidth Monitor Server starting on port " + port);
+        MetricsEndpoint.startIfConfigured();
+        ThroughputTestServer.startIfConfigured();
+
+        cluster = ClusterNode.fromSystemProperties(port, FLEET_LIMIT, BandwidthMonitorServer::buildLocalFleet);
+        if (cluster != null) {
+            cluster.start();
+        }
+
+        try (ServerSocket serverSocket = new ServerSocket(port)) {
+            serverSocket.setReuseAddress(true);
+            serve(serverSocket);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Accepts clients until the socket is closed; also used to run the server in-process on any port
+    static void serve(ServerSocket serverSocket) throws IOException {
+        while (!serverSocket.isClosed()) {
+            Socket clientSocket = serverSocket.accept();
+            // Replies are written in many small pieces; don't let Nagle hold them back for an ACK
+            clientSocket.setTcpNoDelay(true);
+            System.out.println("New client connected: " + clientSocket.getInetAddress().getHostAddress());
+
+            // Key by address and port so several agents on one host stay separate
+            String clientId = clientSocket.getInetAddress().getHostAddress() + ":" + clientSocket.getPort();
+            ClientHandler clientHandler = new ClientHandler(clientId, clientSocket);
+            clients.put(clientId, clientHandler);
+
+            new Thread(clientHandler).start();
+        }
+    }
+
+    private static FleetUpdate currentFleetUpdate() {
+        long now = System.currentTimeMillis();
+        if (now - fleetUpdateTime >= FLEET_REFRESH_MS) {
+            synchronized (BandwidthMonitorServer.class) {
+                if (now - fleetUpdateTime >= FLEET_REFRESH_MS) {
+                    fleetUpdate = buildFleetUpdate();
+                    fleetUpdateTime = now;
+                }
+            }
+        }
+        return fleetUpdate;
+    }
+
+    private static FleetUpdate buildFleetUpdate() {
+        FleetUpdate local = buildLocalFleet(FLEET_LIMIT);
+        ClusterNode node = cluster;
+        return node == null ? local : node.mergeWithPeers(local);
+    }
+
+    // Agents this node reports: its own connections plus, in cluster mode, samples forwarded to it
+    private static FleetUpdate buildLocalFleet(int limit) {
+        List<String> ids = new ArrayList<>();
+        List<NetworkData> samples = new ArrayList<>();
+        for (ClientHandler handler : clients.values()) {
+            NetworkData data = handler.latestData;
+            if (data != null) {
+                ids.add(handler.agentId);
+                samples.add(data);
+            }
+        }
+        ClusterNode node = cluster;
+        if (node != null) {
+            node.collectForwarded(ids, samples);
+        }
+
+        String[] agentIds = ids.toArray(new String[0]);
+        double[] downloadSpeeds = new double[agentIds.length];
+        double[] uploadSpeeds = new double[agentIds.length];
+        for (int i = 0; i < agentIds.length; i++) {
+            downloadSpeeds[i] = samples.get(i).getDownloadSpeed();
+            uploadSpeeds[i] = samples.get(i).getUploadSpeed();
+        }
+        FleetUpdate local = new FleetUpdate(agentIds, downloadSpeeds, uploadSpeeds);
+        return FleetUpdate.merge(Collections.singletonList(local), limit);
+    }
+
+    // Per-connection wire metrics, gathered only when the metrics endpoint is scraped
+    private static void writeConnectionMetrics(StringBuilder out) {
+        String[][] metrics = {
+                {"bandwidth_server_bytes_received_total", "Bytes read from each agent connection", "counter"},
+                {"bandwidth_server_bytes_sent_total", "Bytes written to each agent connection", "counter"},
+                {"bandwidth_server_frames_received_total", "NetworkData frames read from each agent connection", "counter"},
+                {"bandwidth_server_frames_sent_total", "Reply frames written to each agent connection", "counter"},
+                {"bandwidth_server_unread_bytes", "Bytes waiting in the socket receive buffer of each connection", "gauge"}
+        };
+        for (int m = 0; m < metrics.length; m++) {
+            PipelineMetrics.writeHeader(out, metrics[m][0], metrics[m][1], metrics[m][2]);
+            for (ClientHandler handler : clients.values()) {
+                out.append(metrics[m][0]).append("{connection=\"").append(handler.clientId).append("\"} ")
+                        .append(handler.metricValue(m)).append('\n');
+            }
+        }
+    }
+
+    private static class ClientHandler implements Runnable {
+        private final String clientId;
+        private volatile String agentId; // Id on the hash ring: from AgentHello, else the connection id
+        private boolean followsRedirects;
+        private boolean pinned; // Served here regardless of ownership after too many redirects
+        private boolean wantsFleet; // Only subscribed clients get the fleet view, everyone else a small ack
+        private FleetUpdate lastFleetSent;
+        private final Socket clientSocket;
+        private ObjectInputStream input;
+        private ObjectOutputStream output;
+        private CountingInputStream wireInput;
+        private CountingOutputStream wireOutput;
+        private volatile long framesReceived;
+        private volatile long framesSent;
+        private boolean running = true;
+        private volatile NetworkData latestData;
+
+        public ClientHandler(String clientId, Socket socket) {
+            this.clientId = clientId;
+            this.agentId = clientId;
+            this.clientSocket = socket;
+            try {
+                this.wireOutput = new CountingOutputStream(socket.getOutputStream());
+                this.wireInput = new CountingInputStream(socket.getInputStream());
+                this.output = new ObjectOutputStream(wireOutput);
+                this.input = new ObjectInputStream(wireInput);
+                // Don't count the wait for the first frame as decode time
+                wireInput.takeFrameStartNanos();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    long bytesBefore = wireInput.getBytes();
+                    Object message = input.readObject();
+                    long decodeNanos = System.nanoTime() - wireInput.takeFrameStartNanos();
+                    framesReceived++;
+                    PipelineMetrics.SERVER_DECODE.observeNanos(decodeNanos);
+                    PipelineEvents.FrameDecodedEvent event = new PipelineEvents.FrameDecodedEvent();
+                    if (event.shouldCommit()) {
+                        event.connection = clientId;
+                        event.bytes = wireInput.getBytes() - bytesBefore;
+                        event.decodeTime = decodeNanos;
+                        event.commit();
+                    }
+
+                    if (message instanceof ClusterMessage.AgentHello) {
+                        ClusterMessage.AgentHello hello = (ClusterMessage.AgentHello) message;
+                        agentId = hello.getAgentId();
+                        followsRedirects = true;
+                        pinned = hello.getRedirects() >= ClusterNode.MAX_REDIRECTS;
+                    } else if (message instanceof FleetUpdate.Subscribe) {
+                        wantsFleet = ((FleetUpdate.Subscribe) message).isEnabled();
+                        lastFleetSent = null;
+                    } else if (message instanceof ClusterMessage.PeerSync && cluster != null) {
+                        // Another node's heartbeat: take its forwarded samples, answer with our agents
+                        sendReply(cluster.onPeerSync((ClusterMessage.PeerSync) message));
+                    } else if (message instanceof NetworkData) {
+                        NetworkData data = (NetworkData) message;
+                        if (VERBOSE) {
+                            System.out.println("Received from " + clientSocket.getInetAddress().getHostAddress() +
+                                    ": Download=" + data.getDownloadSpeed() + "KB/s, Upload=" +
+                                    data.getUploadSpeed() + "KB/s");
+                        }
+
+                        ClusterNode node = cluster;
+                        String owner = node == null || pinned ? null : node.ownerOf(agentId);
+                        if (owner != null && !owner.equals(node.self())) {
+                            // Another node owns this agent: hand the sample over, and move the agent if it can follow
+                            latestData = null;
+                            node.forward(owner, agentId, data);
+                            if (followsRedirects) {
+                                sendReply(new ClusterMessage.Redirect(owner));
+                                PipelineMetrics.CLUSTER_REDIRECTS.increment();
+                                System.out.println("Redirected " + agentId + " to " + owner);
+                                break;
+                            }
+                        } else {
+                            latestData = data;
+                        }
+
+                        // Subscribers get the fleet view once per rebuild; a full view to every agent on
+                        // every sample would make egress grow with the square of the fleet size
+                        FleetUpdate fleet = wantsFleet ? currentFleetUpdate() : null;
+                        if (fleet != null && fleet != lastFleetSent) {
+                            sendReply(fleet);
+                            lastFleetSent = fleet;
+                        } else {
+                            sendReply(UNCHANGED);
+                        }
+                    }
+                }
+            } catch (IOException | ClassNotFoundException e) {
+                System.out.println("Client disconnected: " + clientSocket.getInetAddress().getHostAddress());
+                running = false;
+            } finally {
+                clients.remove(clientId);
+                closeConnection();
+            }
+        }
+
+        // Resetting before the flush drops the stream's back-references so long-lived connections
+        // don't grow, and ends every reply with TC_RESET, which the load generator uses as a frame
+        // boundary instead of trying to decode partial replies
+        private void sendReply(Object reply) throws IOException {
+            output.writeObject(reply);
+            output.reset();
+            output.flush();
+            framesSent++;
+        }
+
+        long metricValue(int metric) {
+            switch (metric) {
+                case 0: return wireInput == null ? 0 : wireInput.getBytes();
+                case 1: return wireOutput == null ? 0 : wireOutput.getBytes();
+                case 2: return framesReceived;
+                case 3: return framesSent;
+                default:
+                    try {
+                        return clientSocket.isClosed() ? 0 : clientSocket.getInputStream().available();
+                    } catch (IOException e) {
+                        return 0;
+                    }
+            }
+        }
+
+        public void closeConnection() {
+            running = false;
+            try {
+                if (input != null) input.close();
+                if (output != null) output.close();
+                if (clientSocket != null) clientSocket.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,137 @@
+package bandwidthmonitor;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class ClientMetrics {
+    private final AtomicReference<Snapshot> current = new AtomicReference<>(Snapshot.EMPTY);
+    private final int historySize;
+
+    public ClientMetrics(int historySize) {
+        this.historySize = historySize;
+    }
+
+    // Publish a new sample; readers only ever see complete, immutable snapshots
+    public void record(NetworkData data) {
+        Snapshot previous;
+        Snapshot next;
+        do {
+            previous = current.get();
+            next = previous.append(data, historySize);
+        } while (!current.compareAndSet(previous, next));
+    }
+
+    public Snapshot snapshot() {
+        return current.get();
+    }
+
+    public static final class Snapshot {
+        static final Snapshot EMPTY = new Snapshot(0, 0, 0, 0, 0, 0, 0, null, new double[0], new double[0]);
+
+        private final long version;
+        private final double downloadSpeed; // in KB/s
+        private final double uploadSpeed; // in KB/s
+        private final long totalDownloaded; // in KB
+        private final long totalUploaded; // in KB
+        private final int latency; // in ms
+        private final int packetLoss; // percentage
+        private final LocalDateTime timestamp;
+        private final double[] downloadHistory;
+        private final double[] uploadHistory;
+
+        private Snapshot(long version, double downloadSpeed, double uploadSpeed, long totalDownloaded,
+                         long totalUploaded, int latency, int packetLoss, LocalDateTime timestamp,
+                         double[] downloadHistory, double[] uploadHistory) {
+            this.version = version;
+            this.downloadSpeed = downloadSpeed;
+            this.uploadSpeed = uploadSpeed;
+            this.totalDownloaded = totalDownloaded;
+            this.totalUploaded = totalUploaded;
+            this.latency = latency;
+            this.packetLoss = packetLoss;
+            this.timestamp = timestamp;
+            this.downloadHistory = downloadHistory;
+            this.uploadHistory = uploadHistory;
+        }
+
+        private Snapshot append(NetworkData data, int historySize) {
+            return new Snapshot(
+                    version + 1,
+                    data.getDownloadSpeed(),
+                    data.getUploadSpeed(),
+                    data.getTotalDownloaded(),
+                    data.getTotalUploaded(),
+                    data.getLatency(),
+                    data.getPacketLoss(),
+                    data.getTimestamp(),
+                    appendBounded(downloadHistory, data.getDownloadSpeed(), historySize),
+                    appendBounded(uploadHistory, data.getUploadSpeed(), historySize)
+            );
+        }
+
+        // Copy-on-write append that keeps only the last historySize points
+        private static double[] appendBounded(double[] history, double value, int historySize) {
+            int keep = Math.min(history.length, historySize - 1);
+            double[] next = new double[keep + 1];
+            System.arraycopy(history, history.length - keep, next, 0, keep);
+            next[keep] = value;
+            return next;
+        }
+
+        public boolean isEmpty() {
+            return version == 0;
+        }
+
+        // Increases by one for every recorded sample
+        public long getVersion() {
+            return version;
+        }
+
+        public double getDownloadSpeed() {
+            return downloadSpeed;
+        }
+
+        public double getUploadSpeed() {
+            return uploadSpeed;
+        }
+
+        public long getTotalDownloaded() {
+            return totalDownloaded;
+        }
+
+        public long getTotalUploaded() {
+            return totalUploaded;
+        }
+
+        public int getLatency() {
+            return latency;
+        }
+
+        public int getPacketLoss() {
+            return packetLoss;
+        }
+
+        public LocalDateTime getTimestamp() {
+            return timestamp;
+        }
+
+        // Shared with every reader, callers must not modify the returned array
+        public double[] getDownloadHistory() {
+            return downloadHistory;
+        }
+
+        // Shared with every reader, callers must not modify the returned array
+        public double[] getUploadHistory() {
+            return uploadHistory;
+        }
+
+        public NetworkData toNetworkData() {
+            NetworkData data = new NetworkData(downloadSpeed, uploadSpeed, totalDownloaded,
+                    totalUploaded, latency, packetLoss);
+            if (timestamp != null) {
+                data.setTimestamp(timestamp);
+            }
+            return data;
+        }
+    }
+}
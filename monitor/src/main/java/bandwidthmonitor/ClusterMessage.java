@@ -0,0 +1,74 @@
+package bandwidthmonitor;
+
+import java.io.Serializable;
+
+// Messages added to the agent/server protocol for cluster mode
+public final class ClusterMessage {
+    private ClusterMessage() {
+    }
+
+    // Optional first message of an agent connection: a stable id to hash on, and a promise that
+    // the agent follows Redirect replies. Connections without it are forwarded instead.
+    public static class AgentHello implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String agentId;
+        private final int redirects; // Redirects followed in a row to reach this node
+
+        public AgentHello(String agentId, int redirects) {
+            this.agentId = agentId;
+            this.redirects = redirects;
+        }
+
+        public String getAgentId() {
+            return agentId;
+        }
+
+        public int getRedirects() {
+            return redirects;
+        }
+    }
+
+    // Reply to a NetworkData frame telling the agent to reconnect to the node that owns it
+    public static class Redirect implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String node; // host:port
+
+        public Redirect(String node) {
+            this.node = node;
+        }
+
+        public String getNode() {
+            return node;
+        }
+    }
+
+    // Sent between nodes once per heartbeat: samples forwarded to the receiving node plus a
+    // request for its own agents. The reply is the receiver's local FleetUpdate (its top-K).
+    public static class PeerSync implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String[] agentIds;
+        private final NetworkData[] samples;
+        private final int limit; // <= 0 for all agents
+
+        public PeerSync(String[] agentIds, NetworkData[] samples, int limit) {
+            this.agentIds = agentIds;
+            this.samples = samples;
+            this.limit = limit;
+        }
+
+        public String[] getAgentIds() {
+            return agentIds;
+        }
+
+        public NetworkData[] getSamples() {
+            return samples;
+        }
+
+        public int getLimit() {
+            return limit;
+        }
+    }
+}
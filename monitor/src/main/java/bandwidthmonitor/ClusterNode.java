@@ -0,0 +1,285 @@
+package bandwidthmonitor;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+// Membership and agent ownership for a server running in cluster mode. Every node is configured
+// with the same node list (-Dbandwidth.cluster.nodes=host:port,...); a heartbeat syncs with each
+// peer once per interval, and the hash ring only contains the nodes that answered, so a node
+// leaving or joining moves just the agents whose ring positions it covers.
+public class ClusterNode {
+    static final int MAX_REDIRECTS = 3; // After this many redirects in a row an agent is served where it lands
+    private static final long HEARTBEAT_MS = Long.getLong("bandwidth.cluster.heartbeat.ms", 1000);
+    private static final int VIRTUAL_NODES = Integer.getInteger("bandwidth.cluster.vnodes",
+            ConsistentHashRing.DEFAULT_VIRTUAL_NODES);
+    private static final int CONNECT_TIMEOUT_MS = 500;
+    private static final int READ_TIMEOUT_MS = 2000;
+    private static final long FORWARDED_TTL_MS = 3 * HEARTBEAT_MS + 4000; // Agents send every 2s
+
+    private final String self;
+    private final List<Peer> peers = new ArrayList<>();
+    private final int fleetLimit;
+    private final IntFunction<FleetUpdate> localFleet; // This node's own agents, top-K by FleetUpdate.getRate
+    private volatile ConsistentHashRing ring;
+
+    // Latest samples other nodes forwarded to us for agents we own
+    private final ConcurrentHashMap<String, ForwardedSample> forwarded = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "cluster-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ExecutorService peerSyncs = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "cluster-peer-sync");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    ClusterNode(String self, List<String> nodes, int fleetLimit, IntFunction<FleetUpdate> localFleet) {
+        this.self = self;
+        this.fleetLimit = fleetLimit;
+        this.localFleet = localFleet;
+        for (String node : nodes) {
+            if (!node.equals(self)) {
+                peers.add(new Peer(node));
+            }
+        }
+        // Start alone; peers join the ring as soon as they answer a heartbeat
+        this.ring = new ConsistentHashRing(List.of(self), VIRTUAL_NODES);
+
+        PipelineMetrics.gauge("bandwidth_cluster_live_nodes", "Nodes currently on the hash ring",
+                () -> ring.getNodes().size());
+        PipelineMetrics.gauge("bandwidth_cluster_forwarded_agents", "Agents owned here whose samples arrive via peers",
+                forwarded::size);
+    }
+
+    // Returns null unless -Dbandwidth.cluster.nodes is set
+    static ClusterNode fromSystemProperties(int port, int fleetLimit, IntFunction<FleetUpdate> localFleet) {
+        String nodeList = System.getProperty("bandwidth.cluster.nodes");
+        if (nodeList == null || nodeList.trim().isEmpty()) {
+            return null;
+        }
+        String self = System.getProperty("bandwidth.cluster.self", "localhost:" + port);
+        List<String> nodes = new ArrayList<>();
+        for (String node : nodeList.split(",")) {
+            if (!node.trim().isEmpty()) {
+                nodes.add(node.trim());
+            }
+        }
+        if (!nodes.contains(self)) {
+            nodes.add(self);
+        }
+        return new ClusterNode(self, nodes, fleetLimit, localFleet);
+    }
+
+    void start() {
+        System.out.println("Cluster mode: " + self + " with peers " + peerNames());
+        heartbeat.scheduleWithFixedDelay(this::tick, 0, HEARTBEAT_MS, TimeUnit.MILLISECONDS);
+    }
+
+    String self() {
+        return self;
+    }
+
+    String ownerOf(String agentId) {
+        return ring.ownerOf(agentId);
+    }
+
+    boolean owns(String agentId) {
+        return self.equals(ring.ownerOf(agentId));
+    }
+
+    // Queues a sample for the owner node; only the latest sample per agent is kept until the next sync
+    void forward(String owner, String agentId, NetworkData data) {
+        for (Peer peer : peers) {
+            if (peer.node.equals(owner)) {
+                peer.pending.put(agentId, data);
+                PipelineMetrics.CLUSTER_FORWARDED_SAMPLES.increment();
+                return;
+            }
+        }
+    }
+
+    // Handles a PeerSync from another node and returns this node's own agents
+    FleetUpdate onPeerSync(ClusterMessage.PeerSync sync) {
+        long now = System.currentTimeMillis();
+        String[] agentIds = sync.getAgentIds();
+        NetworkData[] samples = sync.getSamples();
+        for (int i = 0; i < agentIds.length; i++) {
+            forwarded.put(agentIds[i], new ForwardedSample(samples[i], now));
+        }
+        return localFleet.apply(sync.getLimit());
+    }
+
+    // Adds the forwarded agents this node currently owns to a local fleet view being built
+    void collectForwarded(List<String> ids, List<NetworkData> samples) {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, ForwardedSample> entry : forwarded.entrySet()) {
+            ForwardedSample sample = entry.getValue();
+            if (now - sample.receivedAt < FORWARDED_TTL_MS && owns(entry.getKey())) {
+                ids.add(entry.getKey());
+                samples.add(sample.data);
+            }
+        }
+    }
+
+    // Fleet-wide view: the local view merged with the latest view of every live peer
+    FleetUpdate mergeWithPeers(FleetUpdate local) {
+        List<FleetUpdate> parts = new ArrayList<>();
+        parts.add(local);
+        for (Peer peer : peers) {
+            FleetUpdate view = peer.lastView;
+            if (peer.alive && view != null) {
+                parts.add(view);
+            }
+        }
+        return FleetUpdate.merge(parts, fleetLimit);
+    }
+
+    private void tick() {
+        try {
+            List<Future<?>> syncs = new ArrayList<>();
+            for (Peer peer : peers) {
+                syncs.add(peerSyncs.submit(peer::sync));
+            }
+            for (Future<?> sync : syncs) {
+                try {
+                    sync.get();
+                } catch (Exception e) {
+                    // Peer.sync marks the peer dead itself
+                }
+            }
+
+            TreeSet<String> live = new TreeSet<>();
+            live.add(self);
+            for (Peer peer : peers) {
+                if (peer.alive) {
+                    live.add(peer.node);
+                }
+            }
+            if (!live.equals(ring.getNodes())) {
+                ring = new ConsistentHashRing(live, VIRTUAL_NODES);
+                PipelineMetrics.CLUSTER_MEMBERSHIP_CHANGES.increment();
+                System.out.println("Cluster membership changed: " + live);
+            }
+
+            long now = System.currentTimeMillis();
+            for (Iterator<ForwardedSample> it = forwarded.values().iterator(); it.hasNext(); ) {
+                if (now - it.next().receivedAt >= FORWARDED_TTL_MS) {
+                    it.remove();
+                }
+            }
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private List<String> peerNames() {
+        List<String> names = new ArrayList<>();
+        for (Peer peer : peers) {
+            names.add(peer.node);
+        }
+        return names;
+    }
+
+    private static final class ForwardedSample {
+        final NetworkData data;
+        final long receivedAt;
+
+        ForwardedSample(NetworkData data, long receivedAt) {
+            this.data = data;
+            this.receivedAt = receivedAt;
+        }
+    }
+
+    // Persistent connection to one other node, used only by the heartbeat
+    private final class Peer {
+        final String node;
+        final String host;
+        final int port;
+        final ConcurrentHashMap<String, NetworkData> pending = new ConcurrentHashMap<>();
+        volatile boolean alive;
+        volatile FleetUpdate lastView;
+        private Socket socket;
+        private ObjectOutputStream output;
+        private ObjectInputStream input;
+
+        Peer(String node) {
+            this.node = node;
+            int colon = node.lastIndexOf(':');
+            this.host = node.substring(0, colon);
+            this.port = Integer.parseInt(node.substring(colon + 1));
+        }
+
+        void sync() {
+            try {
+                if (socket == null) {
+                    socket = new Socket();
+                    socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MS);
+                    socket.setSoTimeout(READ_TIMEOUT_MS);
+                    socket.setTcpNoDelay(true);
+                    output = new ObjectOutputStream(socket.getOutputStream());
+                    output.flush();
+                    input = new ObjectInputStream(socket.getInputStream());
+                }
+
+                List<String> ids = new ArrayList<>();
+                List<NetworkData> samples = new ArrayList<>();
+                for (Iterator<Map.Entry<String, NetworkData>> it = pending.entrySet().iterator(); it.hasNext(); ) {
+                    Map.Entry<String, NetworkData> entry = it.next();
+                    ids.add(entry.getKey());
+                    samples.add(entry.getValue());
+                    it.remove();
+                }
+                output.writeObject(new ClusterMessage.PeerSync(ids.toArray(new String[0]),
+                        samples.toArray(new NetworkData[0]), fleetLimit));
+                output.flush();
+                output.reset();
+
+                Object reply = input.readObject();
+                if (reply instanceof FleetUpdate) {
+                    lastView = (FleetUpdate) reply;
+                }
+                if (!alive) {
+                    System.out.println("Cluster peer up: " + node);
+                }
+                alive = true;
+            } catch (IOException | ClassNotFoundException e) {
+                if (alive) {
+                    System.out.println("Cluster peer down: " + node + " (" + e.getMessage() + ")");
+                }
+                alive = false;
+                lastView = null;
+                pending.clear();
+                close();
+            }
+        }
+
+        private void close() {
+            try {
+                if (socket != null) socket.close();
+            } catch (IOException e) {
+                // Already broken
+            }
+            socket = null;
+            output = null;
+            input = null;
+        }
+    }
+}
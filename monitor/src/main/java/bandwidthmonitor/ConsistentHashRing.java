@@ -0,0 +1,74 @@
+package bandwidthmonitor;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+// Immutable consistent-hash ring mapping agent ids to server nodes ("host:port"). Each node is
+// placed at many virtual points so load spreads evenly, and adding or removing a node only
+// moves the agents whose nearest point belonged to (or now belongs to) that node.
+public final class ConsistentHashRing {
+    public static final int DEFAULT_VIRTUAL_NODES = 160;
+
+    private final SortedSet<String> nodes;
+    // Sorted ring positions with the owning node of each position at the same index
+    private final long[] points;
+    private final String[] owners;
+
+    public ConsistentHashRing(Collection<String> nodes, int virtualNodes) {
+        this.nodes = Collections.unmodifiableSortedSet(new TreeSet<>(nodes));
+
+        int count = this.nodes.size() * virtualNodes;
+        long[] keys = new long[count];
+        String[] nodeByIndex = this.nodes.toArray(new String[0]);
+        int i = 0;
+        for (int n = 0; n < nodeByIndex.length; n++) {
+            for (int v = 0; v < virtualNodes; v++) {
+                // Low bits carry the node index so equal hashes still sort deterministically
+                keys[i++] = (hash(nodeByIndex[n] + "#" + v) & ~0xFFFFL) | n;
+            }
+        }
+        Arrays.sort(keys);
+        points = new long[count];
+        owners = new String[count];
+        for (int k = 0; k < count; k++) {
+            points[k] = keys[k];
+            owners[k] = nodeByIndex[(int) (keys[k] & 0xFFFF)];
+        }
+    }
+
+    public SortedSet<String> getNodes() {
+        return nodes;
+    }
+
+    // Node owning the key: the first ring position at or after the key's hash, wrapping around
+    public String ownerOf(String key) {
+        if (points.length == 0) {
+            return null;
+        }
+        long h = hash(key);
+        int index = Arrays.binarySearch(points, h);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    static long hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+            long h = 0;
+            for (int i = 0; i < 8; i++) {
+                h = (h << 8) | (digest[i] & 0xFF);
+            }
+            return h;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 not available", e);
+        }
+    }
+}
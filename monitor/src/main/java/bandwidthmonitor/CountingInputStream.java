@@ -0,0 +1,51 @@
+package bandwidthmonitor;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+// Counts bytes read and remembers when the first byte of the current frame arrived
+public class CountingInputStream extends FilterInputStream {
+    private volatile long bytes; // Single writer, read by metrics scrapes
+    private long frameStartNanos;
+
+    public CountingInputStream(InputStream in) {
+        super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+            received(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        int read = super.read(buffer, offset, length);
+        if (read > 0) {
+            received(read);
+        }
+        return read;
+    }
+
+    private void received(int count) {
+        if (frameStartNanos == 0) {
+            frameStartNanos = System.nanoTime();
+        }
+        bytes += count;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    // Returns when the current frame started arriving and starts timing the next one
+    public long takeFrameStartNanos() {
+        long start = frameStartNanos;
+        frameStartNanos = 0;
+        return start;
+    }
+}
@@ -0,0 +1,30 @@
+package bandwidthmonitor;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+// Counts bytes written to the wrapped stream
+public class CountingOutputStream extends FilterOutputStream {
+    private volatile long bytes; // Single writer, read by metrics scrapes
+
+    public CountingOutputStream(OutputStream out) {
+        super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+        bytes++;
+    }
+
+    @Override
+    public void write(byte[] buffer, int offset, int length) throws IOException {
+        out.write(buffer, offset, length);
+        bytes += length;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+}
@@ -0,0 +1,152 @@
+package bandwidthmonitor;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// Rate history for every agent in the fleet, kept in flat primitive arrays.
+// Not thread-safe: the client only touches it from the EDT.
+public class FleetHistory {
+    private static final int INITIAL_CAPACITY = 64;
+    // Slots of agents missing from this many consecutive updates are reused, so disconnects and
+    // reconnects under new ids don't grow the arrays forever (about a minute at one update per 2s)
+    static final int EVICT_AFTER_UPDATES = 30;
+
+    private final int historySize;
+    private final Map<String, Integer> slotsById = new HashMap<>();
+
+    private String[] agentIds = new String[INITIAL_CAPACITY];
+    private double[] currentRates = new double[INITIAL_CAPACITY]; // download + upload, in KB/s
+    private float[] history; // ring buffer per agent, historySize wide
+    private int[] heads = new int[INITIAL_CAPACITY]; // next write position in each ring
+    private int[] counts = new int[INITIAL_CAPACITY]; // valid points in each ring
+    private long[] lastSeen = new long[INITIAL_CAPACITY]; // generation of the last update carrying the agent
+    private int slotCount = 0;
+    private int[] freeSlots = new int[INITIAL_CAPACITY]; // evicted slots, reused before growing
+    private int freeCount = 0;
+
+    private int[] order = new int[INITIAL_CAPACITY]; // active slots, highest current rate first
+    private long[] sortKeys = new long[INITIAL_CAPACITY];
+    private int activeCount = 0;
+    private long generation = 0;
+
+    public FleetHistory(int historySize) {
+        this.historySize = historySize;
+        this.history = new float[INITIAL_CAPACITY * historySize];
+    }
+
+    public void apply(FleetUpdate update) {
+        generation++;
+        for (int i = 0; i < update.size(); i++) {
+            int slot = slotFor(update.getAgentId(i));
+            double rate = update.getRate(i);
+            currentRates[slot] = rate;
+            history[slot * historySize + heads[slot]] = (float) rate;
+            heads[slot] = (heads[slot] + 1) % historySize;
+            counts[slot] = Math.min(counts[slot] + 1, historySize);
+            lastSeen[slot] = generation;
+        }
+        rebuildOrder();
+    }
+
+    private int slotFor(String agentId) {
+        Integer existing = slotsById.get(agentId);
+        if (existing != null) {
+            return existing;
+        }
+        int slot;
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+            heads[slot] = 0;
+            counts[slot] = 0;
+        } else {
+            if (slotCount == agentIds.length) {
+                grow(agentIds.length * 2);
+            }
+            slot = slotCount++;
+        }
+        agentIds[slot] = agentId;
+        slotsById.put(agentId, slot);
+        return slot;
+    }
+
+    private void grow(int capacity) {
+        agentIds = Arrays.copyOf(agentIds, capacity);
+        currentRates = Arrays.copyOf(currentRates, capacity);
+        history = Arrays.copyOf(history, capacity * historySize);
+        heads = Arrays.copyOf(heads, capacity);
+        counts = Arrays.copyOf(counts, capacity);
+        lastSeen = Arrays.copyOf(lastSeen, capacity);
+    }
+
+    private void evict(int slot) {
+        slotsById.remove(agentIds[slot]);
+        agentIds[slot] = null;
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeSlots.length * 2);
+        }
+        freeSlots[freeCount++] = slot;
+    }
+
+    private void rebuildOrder() {
+        if (order.length < slotCount) {
+            order = new int[agentIds.length];
+            sortKeys = new long[agentIds.length];
+        }
+
+        // Pack rate and slot into one primitive key so the sort needs no boxing or comparator.
+        // Rates are non-negative, so their float bits order the same way as the values.
+        int active = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (lastSeen[slot] == generation) {
+                long rateBits = Float.floatToIntBits((float) Math.max(0, currentRates[slot]));
+                sortKeys[active++] = ((Integer.MAX_VALUE - rateBits) << 32) | slot;
+            } else if (agentIds[slot] != null && generation - lastSeen[slot] >= EVICT_AFTER_UPDATES) {
+                evict(slot);
+            }
+        }
+        Arrays.sort(sortKeys, 0, active);
+        for (int i = 0; i < active; i++) {
+            order[i] = (int) sortKeys[i];
+        }
+        activeCount = active;
+    }
+
+    // Slots holding an agent, shown or not; bounded by the agents seen within EVICT_AFTER_UPDATES
+    public int slotsInUse() {
+        return slotCount - freeCount;
+    }
+
+    // Number of agents present in the latest update
+    public int size() {
+        return activeCount;
+    }
+
+    public int getHistorySize() {
+        return historySize;
+    }
+
+    // Slot of the agent shown at the given row, rows are sorted by current rate
+    public int slotAt(int row) {
+        return order[row];
+    }
+
+    public String getAgentId(int slot) {
+        return agentIds[slot];
+    }
+
+    public double getCurrentRate(int slot) {
+        return currentRates[slot];
+    }
+
+    // Copies the agent's history, oldest first, into target and returns the number of points
+    public int copyHistory(int slot, float[] target) {
+        int count = counts[slot];
+        int start = (heads[slot] - count + historySize) % historySize;
+        int base = slot * historySize;
+        for (int i = 0; i < count; i++) {
+            target[i] = history[base + (start + i) % historySize];
+        }
+        return count;
+    }
+}
@@ -0,0 +1,106 @@
+package bandwidthmonitor;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class FleetUpdate implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    // Parallel arrays, one entry per connected agent
+    private final String[] agentIds;
+    private final double[] downloadSpeeds; // in KB/s
+    private final double[] uploadSpeeds; // in KB/s
+
+    public FleetUpdate(String[] agentIds, double[] downloadSpeeds, double[] uploadSpeeds) {
+        this.agentIds = agentIds;
+        this.downloadSpeeds = downloadSpeeds;
+        this.uploadSpeeds = uploadSpeeds;
+    }
+
+    public int size() {
+        return agentIds.length;
+    }
+
+    public String getAgentId(int index) {
+        return agentIds[index];
+    }
+
+    public double getDownloadSpeed(int index) {
+        return downloadSpeeds[index];
+    }
+
+    public double getUploadSpeed(int index) {
+        return uploadSpeeds[index];
+    }
+
+    // Combined download and upload rate; every ranking of the fleet (top-K, Fleet tab order) uses it
+    public double getRate(int index) {
+        return downloadSpeeds[index] + uploadSpeeds[index];
+    }
+
+    // Concatenates views from several nodes, dropping repeated agent ids (an agent moving between
+    // nodes can briefly show up on both). With limit > 0 only the top agents by combined rate remain.
+    static FleetUpdate merge(List<FleetUpdate> parts, int limit) {
+        int total = 0;
+        for (FleetUpdate part : parts) {
+            total += part.size();
+        }
+        String[] ids = new String[total];
+        double[] downloads = new double[total];
+        double[] uploads = new double[total];
+        Set<String> seen = new HashSet<>();
+        int n = 0;
+        for (FleetUpdate part : parts) {
+            for (int i = 0; i < part.size(); i++) {
+                if (seen.add(part.agentIds[i])) {
+                    ids[n] = part.agentIds[i];
+                    downloads[n] = part.downloadSpeeds[i];
+                    uploads[n] = part.uploadSpeeds[i];
+                    n++;
+                }
+            }
+        }
+        if (limit <= 0 || n <= limit) {
+            return new FleetUpdate(Arrays.copyOf(ids, n), Arrays.copyOf(downloads, n), Arrays.copyOf(uploads, n));
+        }
+
+        // Top-K: sort indices by combined rate, descending
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(downloads[b] + uploads[b], downloads[a] + uploads[a]));
+        String[] topIds = new String[limit];
+        double[] topDownloads = new double[limit];
+        double[] topUploads = new double[limit];
+        for (int i = 0; i < limit; i++) {
+            topIds[i] = ids[order[i]];
+            topDownloads[i] = downloads[order[i]];
+            topUploads[i] = uploads[order[i]];
+        }
+        return new FleetUpdate(topIds, topDownloads, topUploads);
+    }
+
+    // Sent by a client to start or stop getting the fleet view in replies; clients start unsubscribed
+    public static final class Subscribe implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final boolean enabled;
+
+        public Subscribe(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+    }
+
+    // Reply to a sample when the client is not subscribed or already has the current fleet view
+    public static final class Unchanged implements Serializable {
+        private static final long serialVersionUID = 1L;
+    }
+}
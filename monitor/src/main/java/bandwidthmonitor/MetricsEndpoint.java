@@ -0,0 +1,42 @@
+package bandwidthmonitor;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+// Serves PipelineMetrics at /metrics in Prometheus text format
+public final class MetricsEndpoint {
+    private MetricsEndpoint() {
+    }
+
+    // Starts the endpoint when -Dbandwidth.metrics.port is set
+    public static void startIfConfigured() {
+        Integer port = Integer.getInteger("bandwidth.metrics.port");
+        if (port == null || !PipelineMetrics.ENABLED) {
+            return;
+        }
+        try {
+            start(port);
+            System.out.println("Metrics available at http://localhost:" + port + "/metrics");
+        } catch (IOException e) {
+            System.out.println("Could not start metrics endpoint: " + e.getMessage());
+        }
+    }
+
+    public static HttpServer start(int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/metrics", exchange -> {
+            byte[] body = PipelineMetrics.scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        return server;
+    }
+}
@@ -1,3 +1,5 @@
+package bandwidthmonitor;
+
 import java.io.Serializable;
 import java.time.LocalDateTime;
 
@@ -0,0 +1,43 @@
+package bandwidthmonitor;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+// Fixed-layout binary encoding of NetworkData, a compact alternative to Java serialization
+public final class NetworkDataCodec {
+    public static final int ENCODED_SIZE = 8 + 8 + 8 + 8 + 4 + 4 + 8 + 8; // bytes
+
+    private NetworkDataCodec() {
+    }
+
+    public static void write(NetworkData data, DataOutput out) throws IOException {
+        out.writeDouble(data.getDownloadSpeed());
+        out.writeDouble(data.getUploadSpeed());
+        out.writeLong(data.getTotalDownloaded());
+        out.writeLong(data.getTotalUploaded());
+        out.writeInt(data.getLatency());
+        out.writeInt(data.getPacketLoss());
+        LocalDateTime timestamp = data.getTimestamp();
+        out.writeLong(timestamp.toLocalDate().toEpochDay());
+        out.writeLong(timestamp.toLocalTime().toNanoOfDay());
+    }
+
+    public static NetworkData read(DataInput in) throws IOException {
+        NetworkData data = new NetworkData(
+                in.readDouble(),
+                in.readDouble(),
+                in.readLong(),
+                in.readLong(),
+                in.readInt(),
+                in.readInt()
+        );
+        long epochDay = in.readLong();
+        long nanoOfDay = in.readLong();
+        data.setTimestamp(LocalDateTime.of(LocalDate.ofEpochDay(epochDay), LocalTime.ofNanoOfDay(nanoOfDay)));
+        return data;
+    }
+}
@@ -0,0 +1,239 @@
+package bandwidthmonitor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class NetworkInfo {
+    private static final String DEFAULT_ENDPOINT = "http://ipinfo.io";
+    private static final int CONNECT_TIMEOUT_MS = 3000;
+    private static final int READ_TIMEOUT_MS = 3000;
+    private static final long COMMAND_TIMEOUT_MS = 3000;
+    private static final long DEFAULT_CACHE_TTL_MS = TimeUnit.MINUTES.toMillis(10);
+    // The SSID changes whenever the user switches networks, so it goes stale much sooner than the public IP
+    private static final long DEFAULT_SSID_TTL_MS = TimeUnit.SECONDS.toMillis(15);
+    private static final String UNKNOWN = "Unknown";
+
+    private final String endpoint;
+    private final Path cacheFile;
+    private final long cacheTtlMs;
+    private final long ssidTtlMs;
+    private final Properties cache = new Properties();
+    // One pending lookup per cache key, so concurrent callers share a single request
+    private final ConcurrentHashMap<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newFixedThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "network-info");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Endpoint, cache file and TTL can be overridden with system properties, e.g. to point at a local stub server
+    public NetworkInfo() {
+        this(System.getProperty("bandwidth.netinfo.url", DEFAULT_ENDPOINT),
+                Paths.get(System.getProperty("bandwidth.netinfo.cache",
+                        Paths.get(System.getProperty("user.home"), ".smart-bandwidth-monitor", "network-info.properties").toString())),
+                Long.getLong("bandwidth.netinfo.ttl.ms", DEFAULT_CACHE_TTL_MS),
+                Long.getLong("bandwidth.netinfo.ssid.ttl.ms", DEFAULT_SSID_TTL_MS));
+    }
+
+    public NetworkInfo(String endpoint, Path cacheFile, long cacheTtlMs) {
+        this(endpoint, cacheFile, cacheTtlMs, DEFAULT_SSID_TTL_MS);
+    }
+
+    public NetworkInfo(String endpoint, Path cacheFile, long cacheTtlMs, long ssidTtlMs) {
+        this.endpoint = endpoint.endsWith("/") ? endpoint.substring(0, endpoint.length() - 1) : endpoint;
+        this.cacheFile = cacheFile;
+        this.cacheTtlMs = cacheTtlMs;
+        this.ssidTtlMs = ssidTtlMs;
+        loadCache();
+    }
+
+    // Method to get public IP address
+    public CompletableFuture<String> getPublicIPAsync() {
+        return lookup("ip", cacheTtlMs, () -> fetch(endpoint + "/ip"));
+    }
+
+    // Method to get ISP information, reusing the cached or in-flight public IP lookup
+    public CompletableFuture<String> getISPAsync() {
+        return getPublicIPAsync().thenCompose(publicIp -> UNKNOWN.equals(publicIp)
+                ? CompletableFuture.completedFuture(UNKNOWN)
+                : lookup("isp." + publicIp, cacheTtlMs, () -> fetch(endpoint + "/" + publicIp + "/org")));
+    }
+
+    // Method to get the connected Wi-Fi network name (SSID)
+    public CompletableFuture<String> getNetworkNameAsync() {
+        return lookup("ssid", ssidTtlMs, this::readConnectedWifiSSID);
+    }
+
+    // How often the network name is worth asking for again
+    public long getNetworkNameTtlMillis() {
+        return ssidTtlMs;
+    }
+
+    // Last known public IP, possibly stale, for showing something before the lookup finishes
+    public String getCachedPublicIP() {
+        return cachedValue("ip");
+    }
+
+    public String getCachedISP() {
+        String publicIp = cachedValue("ip");
+        return publicIp == null ? null : cachedValue("isp." + publicIp);
+    }
+
+    public String getCachedNetworkName() {
+        return cachedValue("ssid");
+    }
+
+    private CompletableFuture<String> lookup(String key, long ttlMs, Callable<String> fetcher) {
+        String fresh = freshValue(key, ttlMs);
+        if (fresh != null) {
+            return CompletableFuture.completedFuture(fresh);
+        }
+
+        CompletableFuture<String> created = new CompletableFuture<>();
+        CompletableFuture<String> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            return existing;
+        }
+
+        executor.execute(() -> {
+            try {
+                String value = fetcher.call();
+                if (value == null || value.trim().isEmpty()) {
+                    throw new IOException("Empty response for " + key);
+                }
+                value = value.trim();
+                storeValue(key, value);
+                created.complete(value);
+            } catch (Exception e) {
+                System.out.println("Failed to fetch network info (" + key + "): " + e.getMessage());
+                // Prefer a stale value over nothing when offline
+                String stale = cachedValue(key);
+                created.complete(stale != null ? stale : UNKNOWN);
+            } finally {
+                inFlight.remove(key, created);
+            }
+        });
+        return created;
+    }
+
+    private String fetch(String url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+        connection.setReadTimeout(READ_TIMEOUT_MS);
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+            return reader.readLine();
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private String readConnectedWifiSSID() throws IOException, InterruptedException {
+        String os = System.getProperty("os.name").toLowerCase();
+        ProcessBuilder builder;
+        if (os.contains("win")) {
+            // Windows: Use netsh command
+            builder = new ProcessBuilder("netsh", "wlan", "show", "interfaces");
+        } else if (os.contains("mac") || os.contains("linux")) {
+            // macOS/Linux: Use nmcli command
+            builder = new ProcessBuilder("nmcli", "-t", "-f", "active,ssid", "dev", "wifi");
+        } else {
+            throw new UnsupportedOperationException("Unsupported OS: " + os);
+        }
+
+        Process process = builder.redirectErrorStream(true).start();
+        // Read the output while the command runs; waiting first would stall it once the pipe fills.
+        // A command that hangs is killed after the timeout, which ends the read.
+        AtomicBoolean timedOut = new AtomicBoolean();
+        Executor afterTimeout = CompletableFuture.delayedExecutor(COMMAND_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        CompletableFuture<Void> watchdog = CompletableFuture.runAsync(() -> {
+            timedOut.set(true);
+            destroyTree(process);
+        }, afterTimeout);
+        try {
+            String ssid = null;
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                String line;
+                while (ssid == null && (line = reader.readLine()) != null) {
+                    if (os.contains("win") && line.trim().startsWith("SSID")) {
+                        ssid = line.split(":")[1].trim();
+                    } else if (!os.contains("win") && line.startsWith("yes:")) {
+                        ssid = line.split(":")[1].trim();
+                    }
+                }
+            }
+            if (ssid == null && timedOut.get()) {
+                throw new IOException("Timed out reading Wi-Fi SSID");
+            }
+            return ssid != null ? ssid : UNKNOWN;
+        } finally {
+            watchdog.cancel(false);
+            destroyTree(process);
+        }
+    }
+
+    // Children (e.g. of a wrapper script) could keep the output pipe open after the parent dies
+    private static void destroyTree(Process process) {
+        process.descendants().forEach(ProcessHandle::destroyForcibly);
+        process.destroyForcibly();
+    }
+
+    private synchronized String freshValue(String key, long ttlMs) {
+        String value = cache.getProperty(key);
+        String time = cache.getProperty(key + ".time");
+        if (value == null || time == null) {
+            return null;
+        }
+        try {
+            return System.currentTimeMillis() - Long.parseLong(time) < ttlMs ? value : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private synchronized String cachedValue(String key) {
+        return cache.getProperty(key);
+    }
+
+    private synchronized void storeValue(String key, String value) {
+        cache.setProperty(key, value);
+        cache.setProperty(key + ".time", Long.toString(System.currentTimeMillis()));
+        try {
+            Files.createDirectories(cacheFile.toAbsolutePath().getParent());
+            try (OutputStream out = Files.newOutputStream(cacheFile)) {
+                cache.store(out, "Smart Bandwidth Monitor network info cache");
+            }
+        } catch (IOException e) {
+            System.out.println("Failed to save network info cache: " + e.getMessage());
+        }
+    }
+
+    private synchronized void loadCache() {
+        if (!Files.isRegularFile(cacheFile)) {
+            return;
+        }
+        try (InputStream in = Files.newInputStream(cacheFile)) {
+            cache.load(in);
+        } catch (IOException e) {
+            System.out.println("Failed to load network info cache: " + e.getMessage());
+        }
+    }
+}
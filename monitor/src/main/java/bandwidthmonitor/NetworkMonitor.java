@@ -0,0 +1,123 @@
+package bandwidthmonitor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+// Turns the shared SamplingHub snapshots into NetworkData for one interval and interface. Any
+// number of monitors can run side by side without adding reads or threads.
+public class NetworkMonitor {
+    private final List<NetworkDataListener> listeners = new ArrayList<>();
+    private final SamplingHub hub = SamplingHub.shared();
+    private final int updateInterval;
+
+    private volatile String selectedInterface = null;
+    private SamplingHub.Subscription subscription;
+    private SamplingHub.Snapshot previous; // Only touched by the hub thread once started
+
+    public NetworkMonitor(int updateIntervalMs) {
+        this.updateInterval = updateIntervalMs;
+    }
+
+    public void start() {
+        // Initialize the base values
+        previous = hub.current();
+
+        // Get a snapshot every updateInterval from the shared sampler
+        subscription = hub.subscribe(updateInterval, this::onSnapshot);
+    }
+
+    public void stop() {
+        if (subscription != null) {
+            subscription.cancel();
+            subscription = null;
+        }
+    }
+
+    public void addListener(NetworkDataListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(NetworkDataListener listener) {
+        listeners.remove(listener);
+    }
+
+    public void setNetworkInterface(String interfaceName) {
+        this.selectedInterface = interfaceName;
+    }
+
+    public List<String> getNetworkInterfaces() {
+        List<String> interfaces = new ArrayList<>();
+        if (SamplingHub.IS_LINUX) {
+            // Interfaces listed in /proc/net/dev, from the hub's latest read
+            interfaces.addAll(hub.current().getInterfaces());
+        } else if (SamplingHub.IS_WINDOWS) {
+            // Use PowerShell to list network interfaces
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(new ProcessBuilder("powershell", "Get-NetAdapter | Select-Object -ExpandProperty Name").start().getInputStream()))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    interfaces.add(line.trim());
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        return interfaces;
+    }
+
+    private void onSnapshot(SamplingHub.Snapshot snapshot) {
+        // Both ends use the current interface, so switching interfaces doesn't produce a bogus spike
+        String networkInterface = selectedInterface;
+        long rxBytes = snapshot.getRxBytes(networkInterface);
+        long txBytes = snapshot.getTxBytes(networkInterface);
+        double seconds = (snapshot.nanos - previous.nanos) / 1_000_000_000.0;
+        if (seconds <= 0) {
+            seconds = updateInterval / 1000.0;
+        }
+
+        // Calculate speeds (bytes per second)
+        double downloadSpeed = (rxBytes - previous.getRxBytes(networkInterface)) / seconds / 1024.0; // KB/s
+        double uploadSpeed = (txBytes - previous.getTxBytes(networkInterface)) / seconds / 1024.0; // KB/s
+        previous = snapshot;
+
+        // Simulate latency and packet loss for demo purposes
+        int latency = (int) (Math.random() * 50) + 20; // 20-70ms
+        int packetLoss = (int) (Math.random() * 5); // 0-5%
+
+        NetworkData data = new NetworkData(
+            downloadSpeed,
+            uploadSpeed,
+            rxBytes / 1024, // Convert to KB
+            txBytes / 1024, // Convert to KB
+            latency,
+            packetLoss
+        );
+
+        // Notify all listeners
+        PipelineEvents.ListenerDispatchEvent event = new PipelineEvents.ListenerDispatchEvent();
+        event.begin();
+        long dispatchStart = System.nanoTime();
+        for (NetworkDataListener listener : listeners) {
+            listener.onNetworkDataUpdated(data);
+        }
+        PipelineMetrics.LISTENER_DISPATCH.observeNanos(System.nanoTime() - dispatchStart);
+        event.end();
+        if (event.shouldCommit()) {
+            event.listeners = listeners.size();
+            event.commit();
+        }
+    }
+
+    // Sums received (totals[0]) and transmitted (totals[1]) bytes from /proc/net/dev content
+    static void parseProcNetDev(BufferedReader reader, String selectedInterface, long[] totals) throws IOException {
+        SamplingHub.Snapshot snapshot = SamplingHub.parseProcNetDev(reader, 0);
+        totals[0] = snapshot.getRxBytes(selectedInterface);
+        totals[1] = snapshot.getTxBytes(selectedInterface);
+    }
+
+    public interface NetworkDataListener {
+        void onNetworkDataUpdated(NetworkData data);
+    }
+}
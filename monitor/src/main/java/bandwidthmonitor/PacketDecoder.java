@@ -0,0 +1,218 @@
+package bandwidthmonitor;
+
+import java.nio.ByteBuffer;
+
+// Decodes link, network and transport headers straight out of a (memory-mapped) capture buffer
+// using absolute reads, so packet bytes are never copied. Results are handed to a PacketSink
+// as primitives; IPv4 addresses are reported in their IPv4-mapped IPv6 form.
+public final class PacketDecoder {
+    public static final int PROTOCOL_TCP = 0;
+    public static final int PROTOCOL_UDP = 1;
+    public static final int PROTOCOL_ICMP = 2;
+    public static final int PROTOCOL_OTHER_IP = 3;
+    public static final int PROTOCOL_NON_IP = 4;
+    public static final String[] PROTOCOL_NAMES = {"tcp", "udp", "icmp", "other-ip", "non-ip"};
+
+    // LINKTYPE_* values from the pcap/pcapng specifications
+    static final int LINKTYPE_NULL = 0;
+    static final int LINKTYPE_ETHERNET = 1;
+    static final int LINKTYPE_RAW = 101;
+    static final int LINKTYPE_LOOP = 108;
+    static final int LINKTYPE_LINUX_SLL = 113;
+    static final int LINKTYPE_IPV4 = 228;
+    static final int LINKTYPE_IPV6 = 229;
+    static final int LINKTYPE_LINUX_SLL2 = 276;
+
+    private static final int ETHERTYPE_IPV4 = 0x0800;
+    private static final int ETHERTYPE_IPV6 = 0x86DD;
+    private static final int ETHERTYPE_VLAN = 0x8100;
+    private static final int ETHERTYPE_QINQ = 0x88A8;
+    private static final long IPV4_MAPPED_PREFIX = 0xFFFF00000000L;
+
+    public interface PacketSink {
+        void packet(long timestampNanos, int wireLength, int protocol,
+                    long srcHigh, long srcLow, long dstHigh, long dstLow, int srcPort, int dstPort);
+    }
+
+    private PacketDecoder() {
+    }
+
+    // buffer must be big-endian; offset/capturedLength delimit the captured bytes of one packet
+    public static void decode(ByteBuffer buffer, int offset, int capturedLength, int linkType,
+                              long timestampNanos, int wireLength, PacketSink sink) {
+        int end = offset + capturedLength;
+        int p = offset;
+        int etherType;
+
+        switch (linkType) {
+            case LINKTYPE_ETHERNET:
+                if (capturedLength < 14) {
+                    nonIp(timestampNanos, wireLength, sink);
+                    return;
+                }
+                etherType = u16(buffer, p + 12);
+                p += 14;
+                while ((etherType == ETHERTYPE_VLAN || etherType == ETHERTYPE_QINQ) && p + 4 <= end) {
+                    etherType = u16(buffer, p + 2);
+                    p += 4;
+                }
+                break;
+            case LINKTYPE_LINUX_SLL:
+                if (capturedLength < 16) {
+                    nonIp(timestampNanos, wireLength, sink);
+                    return;
+                }
+                etherType = u16(buffer, p + 14);
+                p += 16;
+                break;
+            case LINKTYPE_LINUX_SLL2:
+                if (capturedLength < 20) {
+                    nonIp(timestampNanos, wireLength, sink);
+                    return;
+                }
+                etherType = u16(buffer, p);
+                p += 20;
+                break;
+            case LINKTYPE_NULL:
+            case LINKTYPE_LOOP:
+                if (capturedLength < 4) {
+                    nonIp(timestampNanos, wireLength, sink);
+                    return;
+                }
+                p += 4;
+                etherType = ipVersionEtherType(buffer, p, end);
+                break;
+            case LINKTYPE_RAW:
+                etherType = ipVersionEtherType(buffer, p, end);
+                break;
+            case LINKTYPE_IPV4:
+                etherType = ETHERTYPE_IPV4;
+                break;
+            case LINKTYPE_IPV6:
+                etherType = ETHERTYPE_IPV6;
+                break;
+            default:
+                nonIp(timestampNanos, wireLength, sink);
+                return;
+        }
+
+        if (etherType == ETHERTYPE_IPV4) {
+            decodeIpv4(buffer, p, end, timestampNanos, wireLength, sink);
+        } else if (etherType == ETHERTYPE_IPV6) {
+            decodeIpv6(buffer, p, end, timestampNanos, wireLength, sink);
+        } else {
+            nonIp(timestampNanos, wireLength, sink);
+        }
+    }
+
+    private static void decodeIpv4(ByteBuffer buffer, int p, int end, long timestampNanos, int wireLength,
+                                   PacketSink sink) {
+        if (p + 20 > end) {
+            sink.packet(timestampNanos, wireLength, PROTOCOL_OTHER_IP, 0, 0, 0, 0, 0, 0);
+            return;
+        }
+        int headerLength = (buffer.get(p) & 0x0F) * 4;
+        int protocol = buffer.get(p + 9) & 0xFF;
+        long src = IPV4_MAPPED_PREFIX | u32(buffer, p + 12);
+        long dst = IPV4_MAPPED_PREFIX | u32(buffer, p + 16);
+        // Only the first fragment carries the transport header
+        boolean firstFragment = (u16(buffer, p + 6) & 0x1FFF) == 0;
+        int transport = firstFragment ? p + headerLength : end;
+        transport(buffer, transport, end, protocol, timestampNanos, wireLength,
+                0, src, 0, dst, sink);
+    }
+
+    private static void decodeIpv6(ByteBuffer buffer, int p, int end, long timestampNanos, int wireLength,
+                                   PacketSink sink) {
+        if (p + 40 > end) {
+            sink.packet(timestampNanos, wireLength, PROTOCOL_OTHER_IP, 0, 0, 0, 0, 0, 0);
+            return;
+        }
+        int nextHeader = buffer.get(p + 6) & 0xFF;
+        long srcHigh = buffer.getLong(p + 8);
+        long srcLow = buffer.getLong(p + 16);
+        long dstHigh = buffer.getLong(p + 24);
+        long dstLow = buffer.getLong(p + 32);
+        int transport = p + 40;
+
+        // Walk a bounded number of extension headers to reach the transport header
+        for (int i = 0; i < 8 && transport + 8 <= end; i++) {
+            if (nextHeader == 0 || nextHeader == 43 || nextHeader == 60) {
+                int length = ((buffer.get(transport + 1) & 0xFF) + 1) * 8;
+                nextHeader = buffer.get(transport) & 0xFF;
+                transport += length;
+            } else if (nextHeader == 44) {
+                boolean firstFragment = (u16(buffer, transport + 2) & 0xFFF8) == 0;
+                nextHeader = buffer.get(transport) & 0xFF;
+                transport = firstFragment ? transport + 8 : end;
+            } else if (nextHeader == 51) {
+                int length = ((buffer.get(transport + 1) & 0xFF) + 2) * 4;
+                nextHeader = buffer.get(transport) & 0xFF;
+                transport += length;
+            } else {
+                break;
+            }
+        }
+        transport(buffer, transport, end, nextHeader == 58 ? 1 : nextHeader, timestampNanos, wireLength,
+                srcHigh, srcLow, dstHigh, dstLow, sink);
+    }
+
+    private static void transport(ByteBuffer buffer, int p, int end, int ipProtocol, long timestampNanos,
+                                  int wireLength, long srcHigh, long srcLow, long dstHigh, long dstLow,
+                                  PacketSink sink) {
+        int protocol;
+        switch (ipProtocol) {
+            case 6: protocol = PROTOCOL_TCP; break;
+            case 17: protocol = PROTOCOL_UDP; break;
+            case 1: protocol = PROTOCOL_ICMP; break;
+            default: protocol = PROTOCOL_OTHER_IP; break;
+        }
+        int srcPort = 0;
+        int dstPort = 0;
+        if ((protocol == PROTOCOL_TCP || protocol == PROTOCOL_UDP) && p + 4 <= end) {
+            srcPort = u16(buffer, p);
+            dstPort = u16(buffer, p + 2);
+        }
+        sink.packet(timestampNanos, wireLength, protocol, srcHigh, srcLow, dstHigh, dstLow, srcPort, dstPort);
+    }
+
+    private static int ipVersionEtherType(ByteBuffer buffer, int p, int end) {
+        if (p >= end) {
+            return 0;
+        }
+        int version = (buffer.get(p) & 0xF0) >>> 4;
+        return version == 4 ? ETHERTYPE_IPV4 : version == 6 ? ETHERTYPE_IPV6 : 0;
+    }
+
+    private static void nonIp(long timestampNanos, int wireLength, PacketSink sink) {
+        sink.packet(timestampNanos, wireLength, PROTOCOL_NON_IP, 0, 0, 0, 0, 0, 0);
+    }
+
+    private static int u16(ByteBuffer buffer, int index) {
+        return buffer.getShort(index) & 0xFFFF;
+    }
+
+    private static long u32(ByteBuffer buffer, int index) {
+        return buffer.getInt(index) & 0xFFFFFFFFL;
+    }
+
+    public static boolean isIpv4Mapped(long high, long low) {
+        return high == 0 && (low >>> 32) == 0xFFFFL;
+    }
+
+    public static String formatAddress(long high, long low) {
+        if (isIpv4Mapped(high, low)) {
+            return ((low >>> 24) & 0xFF) + "." + ((low >>> 16) & 0xFF) + "." + ((low >>> 8) & 0xFF) + "." + (low & 0xFF);
+        }
+        StringBuilder out = new StringBuilder(39);
+        for (int i = 0; i < 8; i++) {
+            long word = i < 4 ? high : low;
+            int shift = 48 - (i % 4) * 16;
+            if (i > 0) {
+                out.append(':');
+            }
+            out.append(Long.toHexString((word >>> shift) & 0xFFFF));
+        }
+        return out.toString();
+    }
+}
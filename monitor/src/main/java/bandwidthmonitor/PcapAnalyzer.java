@@ -0,0 +1,876 @@
+package bandwidthmonitor;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+// Offline analysis of classic pcap and pcapng captures. The file is memory-mapped in segments
+// that are parsed in parallel; each segment resynchronises on the first plausible record after
+// its start offset, and the boundaries are checked against where the previous segment actually
+// stopped so every record is counted exactly once. The result is the same NetworkData series
+// the live monitor produces, plus per-protocol and per-flow breakdowns.
+public class PcapAnalyzer implements AutoCloseable {
+    private static final int CLASSIC_HEADER_SIZE = 24;
+    private static final int CLASSIC_RECORD_HEADER_SIZE = 16;
+    private static final int PCAPNG_SECTION_HEADER = 0x0A0D0D0A;
+    private static final int PCAPNG_BYTE_ORDER_MAGIC = 0x1A2B3C4D;
+    private static final int PCAPNG_INTERFACE_DESCRIPTION = 1;
+    private static final int PCAPNG_OBSOLETE_PACKET = 2;
+    private static final int PCAPNG_SIMPLE_PACKET = 3;
+    private static final int PCAPNG_ENHANCED_PACKET = 6;
+
+    private static final long MIN_SEGMENT_BYTES = 8L << 20;
+    private static final long MAX_SEGMENT_BYTES = 512L << 20;
+    private static final long MAPPING_OVERHANG = 64L << 20; // Room for the last record of a segment
+    private static final int MAX_PACKET_LENGTH = 262144;
+    private static final int MAX_BLOCK_LENGTH = 16 << 20;
+    private static final int SYNC_CHAIN = 4; // Consecutive valid records needed to accept a resync point
+    private static final int INFERENCE_PACKETS = 50000;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final long size;
+    private final boolean pcapng;
+    private ByteOrder order; // Of the file header / first section; later sections get their own Region
+    private long dataStart;
+    private long firstTimestampNanos = -1;
+
+    // Classic pcap
+    private boolean nanosecondTimestamps;
+    private int linkType;
+    private int snapLength;
+
+    // pcapng interfaces from the first section, fixed once the header is read
+    private final List<Interface> interfaces = new ArrayList<>();
+
+    private PcapAnalyzer(Path file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            this.size = channel.size();
+            ByteBuffer head = map(0, Math.min(size, MAPPING_OVERHANG));
+            if (size < 24) {
+                throw new IOException("Not a capture file: " + file);
+            }
+            int magic = head.order(ByteOrder.BIG_ENDIAN).getInt(0);
+            pcapng = magic == PCAPNG_SECTION_HEADER;
+            if (pcapng) {
+                readPcapngHeader(head);
+            } else {
+                readClassicHeader(head, magic);
+            }
+        } catch (IOException | RuntimeException e) {
+            try {
+                channel.close();
+            } catch (IOException closeError) {
+                e.addSuppressed(closeError);
+            }
+            throw e;
+        }
+    }
+
+    public static PcapAnalyzer open(Path file) throws IOException {
+        return new PcapAnalyzer(file);
+    }
+
+    // Results stay usable after closing; they hold no reference to the file
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void readClassicHeader(ByteBuffer head, int magic) throws IOException {
+        switch (magic) {
+            case 0xA1B2C3D4: order = ByteOrder.BIG_ENDIAN; nanosecondTimestamps = false; break;
+            case 0xD4C3B2A1: order = ByteOrder.LITTLE_ENDIAN; nanosecondTimestamps = false; break;
+            case 0xA1B23C4D: order = ByteOrder.BIG_ENDIAN; nanosecondTimestamps = true; break;
+            case 0x4D3CB2A1: order = ByteOrder.LITTLE_ENDIAN; nanosecondTimestamps = true; break;
+            default: throw new IOException("Unknown capture format: " + file);
+        }
+        ByteBuffer header = head.duplicate().order(order);
+        snapLength = header.getInt(16);
+        linkType = header.getInt(20) & 0xFFFF;
+        dataStart = CLASSIC_HEADER_SIZE;
+        if (size >= dataStart + CLASSIC_RECORD_HEADER_SIZE) {
+            firstTimestampNanos = classicTimestamp(header, (int) dataStart);
+        }
+    }
+
+    private void readPcapngHeader(ByteBuffer head) throws IOException {
+        order = head.order(ByteOrder.BIG_ENDIAN).getInt(8) == PCAPNG_BYTE_ORDER_MAGIC
+                ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+        ByteBuffer header = head.duplicate().order(order);
+        int pos = 0;
+        // Collect the interface table up to the first packet block
+        while (pos + 12 <= header.limit()) {
+            int type = header.getInt(pos);
+            int length = header.getInt(pos + 4);
+            if (length < 12 || pos + length > header.limit()) {
+                break;
+            }
+            if (type == PCAPNG_INTERFACE_DESCRIPTION) {
+                interfaces.add(Interface.parse(header, pos, length));
+            } else if (type == PCAPNG_ENHANCED_PACKET || type == PCAPNG_OBSOLETE_PACKET
+                    || type == PCAPNG_SIMPLE_PACKET) {
+                if (type != PCAPNG_SIMPLE_PACKET && !interfaces.isEmpty()) {
+                    firstTimestampNanos = pcapngTimestamp(header, pos, type);
+                }
+                break;
+            }
+            pos += length;
+        }
+        dataStart = pos;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0 || args[0].startsWith("--")) {
+            printUsage();
+            return;
+        }
+        Path capture = Paths.get(args[0]);
+        long intervalMillis = 1000;
+        String localSpec = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        Path csv = null;
+        int top = 10;
+        String send = null;
+
+        for (int i = 1; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            switch (args[i]) {
+                case "--interval": intervalMillis = Long.parseLong(value); i++; break;
+                case "--local": localSpec = value; i++; break;
+                case "--threads": threads = Integer.parseInt(value); i++; break;
+                case "--csv": csv = Paths.get(value); i++; break;
+                case "--top": top = Integer.parseInt(value); i++; break;
+                case "--send": send = value; i++; break;
+                default:
+                    printUsage();
+                    return;
+            }
+        }
+
+        try (PcapAnalyzer analyzer = PcapAnalyzer.open(capture)) {
+            TrafficAggregate.AddressMatcher local = new TrafficAggregate.AddressMatcher();
+            if (localSpec != null) {
+                for (String spec : localSpec.split(",")) {
+                    local.add(spec);
+                }
+            } else {
+                String inferred = analyzer.inferLocalAddress(local);
+                System.out.println("Local address (inferred, override with --local): " + inferred);
+            }
+
+            Result result = analyzer.analyze(TimeUnit.MILLISECONDS.toNanos(intervalMillis), local, threads);
+            result.printSummary(top);
+            if (csv != null) {
+                result.writeCsv(csv);
+                System.out.println("Series written to " + csv);
+            }
+            if (send != null) {
+                String[] hostPort = send.split(":");
+                int sent = result.sendTo(hostPort[0], Integer.parseInt(hostPort[1]));
+                System.out.println("Sent " + sent + " samples to " + send);
+            }
+        }
+    }
+
+    private static void printUsage() {
+        System.out.println("Usage: java -cp <jar> bandwidthmonitor.PcapAnalyzer <capture.pcap|pcapng> [options]");
+        System.out.println("  --interval <ms>        sample interval of the produced series (default 1000)");
+        System.out.println("  --local <addr[/len],..> local addresses that define download vs upload (default: inferred)");
+        System.out.println("  --threads <n>          parser threads (default: all cores)");
+        System.out.println("  --csv <file>           write the series with per-protocol columns");
+        System.out.println("  --top <n>              number of top flows to print (default 10)");
+        System.out.println("  --send <host:port>     replay the series into a BandwidthMonitorServer");
+    }
+
+    // Picks the address seen in the most packets at the start of the capture, usually the capturing host
+    public String inferLocalAddress(TrafficAggregate.AddressMatcher local) throws IOException {
+        Map<String, long[]> counts = new HashMap<>();
+        final String[] best = {null};
+        final long[] bestCount = {0};
+        final long[][] bestAddress = {null};
+        final int[] seen = {0};
+        PacketDecoder.PacketSink counter = (timestampNanos, wireLength, protocol, srcHigh, srcLow, dstHigh, dstLow,
+                                            srcPort, dstPort) -> {
+            if (protocol == PacketDecoder.PROTOCOL_NON_IP || seen[0]++ >= INFERENCE_PACKETS) {
+                return;
+            }
+            for (int side = 0; side < 2; side++) {
+                long high = side == 0 ? srcHigh : dstHigh;
+                long low = side == 0 ? srcLow : dstLow;
+                String key = PacketDecoder.formatAddress(high, low);
+                long[] entry = counts.computeIfAbsent(key, k -> new long[]{0, high, low});
+                if (++entry[0] > bestCount[0]) {
+                    bestCount[0] = entry[0];
+                    best[0] = key;
+                    bestAddress[0] = entry;
+                }
+            }
+        };
+        // The first section is enough; parsing stops at a later section or interface anyway
+        parseSegment(dataStart, Math.min(size, dataStart + MIN_SEGMENT_BYTES), false, firstRegion(), counter);
+        if (bestAddress[0] == null) {
+            return "none";
+        }
+        local.add(bestAddress[0][1], bestAddress[0][2], 128);
+        return best[0];
+    }
+
+    public Result analyze(long intervalNanos, TrafficAggregate.AddressMatcher local, int threads)
+            throws IOException, InterruptedException {
+        long started = System.nanoTime();
+        long baseNanos = firstTimestampNanos < 0 ? 0 : firstTimestampNanos - firstTimestampNanos % intervalNanos;
+
+        long dataBytes = Math.max(0, size - dataStart);
+        long segmentBytes = Math.min(MAX_SEGMENT_BYTES, Math.max(MIN_SEGMENT_BYTES, dataBytes / (threads * 4L)));
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+        try {
+            Pass pass = parseRegions(Collections.singletonList(firstRegion()), segmentBytes, baseNanos, intervalNanos,
+                    local, executor);
+            if (pass.stateChange >= 0) {
+                // A later pcapng section or interface description changes how the blocks after it decode.
+                // Split the capture into runs that share one byte order and interface table, then parse
+                // every run in parallel segments just like a single-section capture.
+                pass = parseRegions(pcapngRegions(pass.stateChange), segmentBytes, baseNanos, intervalNanos,
+                        local, executor);
+            }
+
+            TrafficAggregate total = new TrafficAggregate(baseNanos, intervalNanos, local);
+            long untimestamped = 0;
+            boolean truncated = false;
+            for (Segment segment : pass.segments) {
+                if (segment.aggregate != null) {
+                    total.merge(segment.aggregate);
+                }
+                untimestamped += segment.untimestamped;
+                truncated |= segment.truncated;
+            }
+            return new Result(file, pcapng, total, pass.segments.size(), pass.reparsed, untimestamped, truncated,
+                    System.nanoTime() - started);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    // Parses each region in segments of at most segmentBytes on the executor. Stops early, with
+    // stateChange set, when the first region turns out to contain a pcapng section or interface change.
+    private Pass parseRegions(List<Region> regions, long segmentBytes, long baseNanos, long intervalNanos,
+                              TrafficAggregate.AddressMatcher local, ExecutorService executor)
+            throws IOException, InterruptedException {
+        List<Future<Segment>> futures = new ArrayList<>();
+        List<Long> starts = new ArrayList<>();
+        for (Region region : regions) {
+            int count = (int) Math.max(1, (region.end - region.start + segmentBytes - 1) / segmentBytes);
+            for (int i = 0; i < count; i++) {
+                final long start = Math.min(region.end, region.start + i * segmentBytes);
+                final long end = Math.min(region.end, region.start + (i + 1) * segmentBytes);
+                final boolean resync = i > 0;
+                starts.add(start);
+                futures.add(executor.submit(() -> {
+                    TrafficAggregate aggregate = new TrafficAggregate(baseNanos, intervalNanos, local);
+                    Segment segment = parseSegment(start, end, resync, region, aggregate);
+                    segment.aggregate = aggregate;
+                    return segment.within(region, end);
+                }));
+            }
+        }
+
+        Pass pass = new Pass();
+        IOException failure = null;
+        long failedAt = -1;
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                Segment segment = futures.get(i).get();
+                pass.segments.add(segment);
+                if (pass.stateChange < 0 && segment.stateChange >= 0) {
+                    pass.stateChange = segment.stateChange;
+                }
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    Throwable cause = e.getCause();
+                    failure = cause instanceof IOException ? (IOException) cause
+                            : new IOException("Failed to parse " + file, cause);
+                    failedAt = starts.get(i);
+                }
+            }
+        }
+        // Segments past a section change may have resynced onto blocks in another byte order; their
+        // errors don't matter because everything is parsed again with the right state
+        if (failure != null && (pass.stateChange < 0 || pass.stateChange > failedAt)) {
+            throw failure;
+        }
+        if (pass.stateChange >= 0) {
+            return pass;
+        }
+
+        // Every segment must start exactly where its predecessor in the same region stopped; re-parse
+        // any that resynced wrongly
+        Segment previous = null;
+        for (int i = 0; i < pass.segments.size(); i++) {
+            Segment segment = pass.segments.get(i);
+            if (previous != null && previous.region == segment.region) {
+                long expected = previous.stop;
+                boolean empty = segment.firstRecord < 0;
+                boolean aligned = expected >= segment.end ? empty : segment.firstRecord == expected;
+                if (!aligned) {
+                    TrafficAggregate aggregate = new TrafficAggregate(baseNanos, intervalNanos, local);
+                    Segment fixed = expected >= segment.end ? Segment.empty(expected)
+                            : parseSegment(expected, segment.end, false, segment.region, aggregate);
+                    fixed.aggregate = aggregate;
+                    segment = fixed.within(segment.region, segment.end);
+                    pass.segments.set(i, segment);
+                    pass.reparsed++;
+                } else if (empty) {
+                    segment.stop = expected;
+                }
+            }
+            previous = segment;
+        }
+        return pass;
+    }
+
+    private Region firstRegion() {
+        return new Region(dataStart, size, order, interfaces);
+    }
+
+    // Splits the blocks from `from` (a section header or interface description) to the end of the file
+    // into runs that share one byte order and interface table. Only block headers are read, one
+    // bounded window at a time, so this stays cheap and never maps the whole capture.
+    private List<Region> pcapngRegions(long from) throws IOException {
+        List<Region> regions = new ArrayList<>();
+        addRegion(regions, new Region(dataStart, from, order, interfaces));
+        ByteOrder regionOrder = order;
+        List<Interface> regionInterfaces = interfaces;
+        long regionStart = from;
+        long pos = from;
+        while (pos < size) {
+            long windowStart = pos;
+            long windowEnd = Math.min(size, windowStart + MAX_SEGMENT_BYTES);
+            ByteBuffer data = map(windowStart, Math.min(size, windowEnd + MAPPING_OVERHANG) - windowStart);
+            ByteBuffer header = data.duplicate().order(regionOrder);
+            ByteOrder sectionOrder = regionOrder;
+            List<Interface> sectionInterfaces = regionInterfaces;
+            while (pos < windowEnd) {
+                int at = (int) (pos - windowStart);
+                if (at + 12 > data.capacity()) {
+                    pos = size; // Truncated tail; the last region's parse reports it
+                    break;
+                }
+                int type = header.getInt(at);
+                if (type == PCAPNG_SECTION_HEADER) {
+                    sectionOrder = data.order(ByteOrder.BIG_ENDIAN).getInt(at + 8) == PCAPNG_BYTE_ORDER_MAGIC
+                            ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+                    header = data.duplicate().order(sectionOrder);
+                    sectionInterfaces = new ArrayList<>();
+                }
+                int length = header.getInt(at + 4);
+                if (length < 12 || at + length > data.capacity()) {
+                    pos = size;
+                    break;
+                }
+                if (type == PCAPNG_SECTION_HEADER || type == PCAPNG_INTERFACE_DESCRIPTION) {
+                    if (type == PCAPNG_INTERFACE_DESCRIPTION) {
+                        sectionInterfaces = new ArrayList<>(sectionInterfaces);
+                        sectionInterfaces.add(Interface.parse(header, at, length));
+                    }
+                    addRegion(regions, new Region(regionStart, pos, regionOrder, regionInterfaces));
+                    regionStart = pos + length;
+                    regionOrder = sectionOrder;
+                    regionInterfaces = sectionInterfaces;
+                }
+                pos += length;
+            }
+        }
+        addRegion(regions, new Region(regionStart, size, regionOrder, regionInterfaces));
+        return regions;
+    }
+
+    private static void addRegion(List<Region> regions, Region region) {
+        if (region.end > region.start) {
+            regions.add(region);
+        }
+    }
+
+    // Parses records starting before end, using the byte order and interfaces of the region. With
+    // resync the first record is searched for from start, otherwise start must be a record boundary.
+    private Segment parseSegment(long start, long end, boolean resync, Region region, PacketDecoder.PacketSink sink)
+            throws IOException {
+        long mapEnd = Math.min(size, end + MAPPING_OVERHANG);
+        ByteBuffer data = map(start, mapEnd - start);
+        ByteBuffer header = data.duplicate().order(region.order);
+        int limit = (int) (end - start);
+        int fileEnd = mapEnd == size ? data.capacity() : -1; // Relative end of file when it is mapped
+        return pcapng
+                ? parsePcapng(data, header, start, limit, fileEnd, resync, region.interfaces, sink)
+                : parseClassic(data, header, start, limit, fileEnd, resync, sink);
+    }
+
+    private Segment parseClassic(ByteBuffer data, ByteBuffer header, long start, int limit, int fileEnd,
+                                 boolean resync, PacketDecoder.PacketSink sink) throws IOException {
+        int pos = resync ? syncClassic(header, limit, fileEnd) : 0;
+        if (pos < 0) {
+            return Segment.empty(-1);
+        }
+        Segment segment = new Segment(start + pos);
+        int capacity = data.capacity();
+        while (pos < limit) {
+            if (pos + CLASSIC_RECORD_HEADER_SIZE > capacity) {
+                segment.truncated = fileEnd >= 0;
+                if (fileEnd < 0) {
+                    throw new IOException("Record at " + (start + pos) + " crosses the mapped region");
+                }
+                break;
+            }
+            int captured = header.getInt(pos + 8);
+            int wire = header.getInt(pos + 12);
+            if (captured < 0 || pos + CLASSIC_RECORD_HEADER_SIZE + captured > capacity) {
+                if (fileEnd >= 0) {
+                    segment.truncated = true;
+                    break;
+                }
+                throw new IOException("Record at " + (start + pos) + " crosses the mapped region");
+            }
+            PacketDecoder.decode(data, pos + CLASSIC_RECORD_HEADER_SIZE, captured, linkType,
+                    classicTimestamp(header, pos), wire, sink);
+            pos += CLASSIC_RECORD_HEADER_SIZE + captured;
+        }
+        segment.stop = segment.truncated ? size : start + pos;
+        return segment;
+    }
+
+    private long classicTimestamp(ByteBuffer header, int pos) {
+        long seconds = header.getInt(pos) & 0xFFFFFFFFL;
+        long fraction = header.getInt(pos + 4) & 0xFFFFFFFFL;
+        return seconds * 1_000_000_000L + (nanosecondTimestamps ? fraction : fraction * 1000);
+    }
+
+    private int syncClassic(ByteBuffer header, int limit, int fileEnd) {
+        for (int candidate = 0; candidate < limit; candidate++) {
+            if (isClassicChain(header, candidate, fileEnd)) {
+                return candidate;
+            }
+        }
+        return -1;
+    }
+
+    private boolean isClassicChain(ByteBuffer header, int pos, int fileEnd) {
+        long firstSeconds = firstTimestampNanos / 1_000_000_000L;
+        long fractionLimit = nanosecondTimestamps ? 1_000_000_000L : 1_000_000L;
+        int maxCaptured = Math.max(snapLength, MAX_PACKET_LENGTH);
+        for (int k = 0; k < SYNC_CHAIN; k++) {
+            if (pos == fileEnd) {
+                return k > 0;
+            }
+            if (pos + CLASSIC_RECORD_HEADER_SIZE > header.capacity()) {
+                return false;
+            }
+            long seconds = header.getInt(pos) & 0xFFFFFFFFL;
+            long fraction = header.getInt(pos + 4) & 0xFFFFFFFFL;
+            int captured = header.getInt(pos + 8);
+            int wire = header.getInt(pos + 12);
+            if (fraction >= fractionLimit || captured < 0 || captured > maxCaptured || wire < captured
+                    || wire > MAX_PACKET_LENGTH * 4
+                    || seconds < firstSeconds - TimeUnit.DAYS.toSeconds(1)
+                    || seconds > firstSeconds + TimeUnit.DAYS.toSeconds(366)) {
+                return false;
+            }
+            pos += CLASSIC_RECORD_HEADER_SIZE + captured;
+        }
+        return true;
+    }
+
+    private Segment parsePcapng(ByteBuffer data, ByteBuffer header, long start, int limit, int fileEnd,
+                                boolean resync, List<Interface> blockInterfaces, PacketDecoder.PacketSink sink)
+            throws IOException {
+        int pos = resync ? syncPcapng(header, start, limit, fileEnd, blockInterfaces) : 0;
+        if (pos < 0) {
+            return Segment.empty(-1);
+        }
+        Segment segment = new Segment(start + pos);
+        int capacity = data.capacity();
+        while (pos < limit) {
+            if (pos + 12 > capacity) {
+                if (fileEnd < 0) {
+                    throw new IOException("Block at " + (start + pos) + " crosses the mapped region");
+                }
+                segment.truncated = pos != fileEnd;
+                break;
+            }
+            int type = header.getInt(pos);
+            if (type == PCAPNG_SECTION_HEADER || type == PCAPNG_INTERFACE_DESCRIPTION) {
+                // A new section (maybe in the other byte order) or interface changes how the following
+                // blocks decode, so nothing after it can be read with this region's state
+                segment.stateChange = start + pos;
+                break;
+            }
+            int length = header.getInt(pos + 4);
+            if (length < 12 || pos + length > capacity) {
+                if (fileEnd >= 0) {
+                    segment.truncated = true;
+                    break;
+                }
+                throw new IOException("Block at " + (start + pos) + " crosses the mapped region");
+            }
+
+            if (type == PCAPNG_ENHANCED_PACKET || type == PCAPNG_OBSOLETE_PACKET) {
+                int interfaceId = type == PCAPNG_ENHANCED_PACKET
+                        ? header.getInt(pos + 8) : header.getShort(pos + 8) & 0xFFFF;
+                if (interfaceId >= 0 && interfaceId < blockInterfaces.size()) {
+                    Interface iface = blockInterfaces.get(interfaceId);
+                    int captured = header.getInt(pos + 20);
+                    int wire = header.getInt(pos + 24);
+                    PacketDecoder.decode(data, pos + 28, Math.min(captured, length - 32), iface.linkType,
+                            pcapngTimestamp(header, pos, iface), wire, sink);
+                }
+            } else if (type == PCAPNG_SIMPLE_PACKET) {
+                segment.untimestamped++;
+            }
+            pos += length;
+        }
+        segment.stop = segment.truncated ? size : start + pos;
+        return segment;
+    }
+
+    private long pcapngTimestamp(ByteBuffer header, int pos, int type) {
+        int interfaceId = type == PCAPNG_ENHANCED_PACKET ? header.getInt(pos + 8) : header.getShort(pos + 8) & 0xFFFF;
+        return pcapngTimestamp(header, pos, interfaces.get(Math.min(interfaceId, interfaces.size() - 1)));
+    }
+
+    private static long pcapngTimestamp(ByteBuffer header, int pos, Interface iface) {
+        long ticks = ((header.getInt(pos + 12) & 0xFFFFFFFFL) << 32) | (header.getInt(pos + 16) & 0xFFFFFFFFL);
+        return iface.toNanos(ticks);
+    }
+
+    private int syncPcapng(ByteBuffer header, long start, int limit, int fileEnd, List<Interface> blockInterfaces) {
+        // Blocks are 32-bit aligned relative to the start of the file
+        int first = (int) ((4 - start % 4) % 4);
+        for (int candidate = first; candidate < limit; candidate += 4) {
+            if (isPcapngChain(header, candidate, fileEnd, blockInterfaces)) {
+                return candidate;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isPcapngChain(ByteBuffer header, int pos, int fileEnd, List<Interface> blockInterfaces) {
+        for (int k = 0; k < SYNC_CHAIN; k++) {
+            if (pos == fileEnd) {
+                return k > 0;
+            }
+            if (pos + 12 > header.capacity()) {
+                return false;
+            }
+            int type = header.getInt(pos);
+            int length = header.getInt(pos + 4);
+            if (length < 12 || length > MAX_BLOCK_LENGTH || length % 4 != 0 || pos + length > header.capacity()
+                    || header.getInt(pos + length - 4) != length) {
+                return false;
+            }
+            if (type == PCAPNG_ENHANCED_PACKET) {
+                int interfaceId = header.getInt(pos + 8);
+                int captured = header.getInt(pos + 20);
+                if (interfaceId < 0 || interfaceId >= blockInterfaces.size() || captured < 0 || captured > length - 32) {
+                    return false;
+                }
+            }
+            pos += length;
+        }
+        return true;
+    }
+
+    private MappedByteBuffer map(long position, long length) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        buffer.order(ByteOrder.BIG_ENDIAN);
+        return buffer;
+    }
+
+    // Parsing outcome of one byte range of the capture
+    private static final class Segment {
+        final long firstRecord; // Offset of the first record parsed, -1 when none starts in the range
+        long stop; // Offset of the first record at or after the range end
+        TrafficAggregate aggregate;
+        long untimestamped;
+        boolean truncated;
+        long stateChange = -1; // Offset of a pcapng section header or interface description that ended the parse
+        Region region; // Region and end offset the segment was parsed for
+        long end;
+
+        Segment(long firstRecord) {
+            this.firstRecord = firstRecord;
+            this.stop = firstRecord;
+        }
+
+        static Segment empty(long stop) {
+            Segment segment = new Segment(-1);
+            segment.stop = stop;
+            return segment;
+        }
+
+        Segment within(Region region, long end) {
+            this.region = region;
+            this.end = end;
+            return this;
+        }
+    }
+
+    // Byte range of the capture in which every block decodes with the same byte order and, for
+    // pcapng, the same interface table. Classic pcap is always a single region.
+    private static final class Region {
+        final long start;
+        final long end;
+        final ByteOrder order;
+        final List<Interface> interfaces;
+
+        Region(long start, long end, ByteOrder order, List<Interface> interfaces) {
+            this.start = start;
+            this.end = end;
+            this.order = order;
+            this.interfaces = interfaces;
+        }
+    }
+
+    // Segments of one parse over a list of regions, in file order
+    private static final class Pass {
+        final List<Segment> segments = new ArrayList<>();
+        int reparsed;
+        long stateChange = -1;
+    }
+
+    private static final class Interface {
+        final int linkType;
+        final boolean binaryResolution;
+        final int resolutionExponent;
+
+        private Interface(int linkType, boolean binaryResolution, int resolutionExponent) {
+            this.linkType = linkType;
+            this.binaryResolution = binaryResolution;
+            this.resolutionExponent = resolutionExponent;
+        }
+
+        static Interface parse(ByteBuffer header, int pos, int length) {
+            int linkType = header.getShort(pos + 8) & 0xFFFF;
+            boolean binary = false;
+            int exponent = 6; // Microseconds unless if_tsresol says otherwise
+            int option = pos + 16;
+            int end = pos + length - 4;
+            while (option + 4 <= end) {
+                int code = header.getShort(option) & 0xFFFF;
+                int optionLength = header.getShort(option + 2) & 0xFFFF;
+                if (code == 0) {
+                    break;
+                }
+                if (code == 9 && optionLength >= 1) {
+                    int resolution = header.get(option + 4) & 0xFF;
+                    binary = (resolution & 0x80) != 0;
+                    exponent = resolution & 0x7F;
+                }
+                option += 4 + ((optionLength + 3) & ~3);
+            }
+            return new Interface(linkType, binary, exponent);
+        }
+
+        long toNanos(long ticks) {
+            if (binaryResolution) {
+                long whole = ticks >>> resolutionExponent;
+                long remainder = ticks & ((1L << resolutionExponent) - 1);
+                return whole * 1_000_000_000L + ((remainder * 1_000_000_000L) >>> resolutionExponent);
+            }
+            if (resolutionExponent <= 9) {
+                long factor = 1;
+                for (int i = resolutionExponent; i < 9; i++) {
+                    factor *= 10;
+                }
+                return ticks * factor;
+            }
+            long divisor = 1;
+            for (int i = 9; i < resolutionExponent; i++) {
+                divisor *= 10;
+            }
+            return ticks / divisor;
+        }
+    }
+
+    public static final class Result {
+        // Quiet stretches up to this long are filled with zero samples; longer gaps (usually a bogus
+        // timestamp far from the rest of the capture) are left out of the series instead
+        private static final long MAX_FILLED_GAP_NANOS = TimeUnit.HOURS.toNanos(1);
+
+        private final Path file;
+        private final boolean pcapng;
+        private final TrafficAggregate aggregate;
+        private final int segments;
+        private final int reparsedSegments;
+        private final long untimestampedPackets;
+        private final boolean truncated;
+        private final long elapsedNanos;
+        private final long[] buckets; // Bucket index of each sample in the series
+
+        Result(Path file, boolean pcapng, TrafficAggregate aggregate, int segments, int reparsedSegments,
+               long untimestampedPackets, boolean truncated, long elapsedNanos) {
+            this.file = file;
+            this.pcapng = pcapng;
+            this.aggregate = aggregate;
+            this.segments = segments;
+            this.reparsedSegments = reparsedSegments;
+            this.untimestampedPackets = untimestampedPackets;
+            this.truncated = truncated;
+            this.elapsedNanos = elapsedNanos;
+            this.buckets = aggregate.seriesBuckets(MAX_FILLED_GAP_NANOS / aggregate.getIntervalNanos());
+        }
+
+        public TrafficAggregate getAggregate() {
+            return aggregate;
+        }
+
+        // Same shape as the live NetworkMonitor output: KB/s speeds and cumulative KB totals
+        public List<NetworkData> toNetworkData() {
+            List<NetworkData> series = new ArrayList<>(buckets.length);
+            double seconds = aggregate.getIntervalNanos() / 1e9;
+            long totalDownloaded = 0;
+            long totalUploaded = 0;
+            for (long b : buckets) {
+                totalDownloaded += aggregate.getDownloadBytes(b);
+                totalUploaded += aggregate.getUploadBytes(b);
+                NetworkData data = new NetworkData(
+                        aggregate.getDownloadBytes(b) / seconds / 1024.0,
+                        aggregate.getUploadBytes(b) / seconds / 1024.0,
+                        totalDownloaded / 1024,
+                        totalUploaded / 1024,
+                        0, // Not observable from a capture
+                        0
+                );
+                data.setTimestamp(bucketTime(b));
+                series.add(data);
+            }
+            return series;
+        }
+
+        // Download speeds in KB/s, ready for BandwidthGraph.updateData
+        public double[] downloadSeries() {
+            double[] series = new double[buckets.length];
+            double seconds = aggregate.getIntervalNanos() / 1e9;
+            for (int i = 0; i < series.length; i++) {
+                series[i] = aggregate.getDownloadBytes(buckets[i]) / seconds / 1024.0;
+            }
+            return series;
+        }
+
+        public double[] uploadSeries() {
+            double[] series = new double[buckets.length];
+            double seconds = aggregate.getIntervalNanos() / 1e9;
+            for (int i = 0; i < series.length; i++) {
+                series[i] = aggregate.getUploadBytes(buckets[i]) / seconds / 1024.0;
+            }
+            return series;
+        }
+
+        private LocalDateTime bucketTime(long bucket) {
+            long nanos = aggregate.getBaseNanos() + bucket * aggregate.getIntervalNanos();
+            return LocalDateTime.ofInstant(Instant.ofEpochSecond(0, nanos), ZoneId.systemDefault());
+        }
+
+        public void printSummary(int topFlows) {
+            System.out.printf("%s (%s): %,d packets, %,d bytes, %d intervals%n", file.getFileName(),
+                    pcapng ? "pcapng" : "pcap", aggregate.getPackets(), aggregate.getBytes(), buckets.length);
+            System.out.printf("Parsed in %.1f ms using %d segments (%d re-parsed at boundaries)%n",
+                    elapsedNanos / 1e6, segments, reparsedSegments);
+            if (untimestampedPackets > 0) {
+                System.out.printf("%,d simple packet blocks skipped (no timestamp)%n", untimestampedPackets);
+            }
+            if (truncated) {
+                System.out.println("Capture is truncated; the last record was ignored");
+            }
+            int gaps = 0;
+            for (int i = 1; i < buckets.length; i++) {
+                if (buckets[i] != buckets[i - 1] + 1) {
+                    gaps++;
+                }
+            }
+            if (gaps > 0) {
+                System.out.printf("%d gaps longer than %d min left out of the series (check for bad timestamps)%n",
+                        gaps, TimeUnit.NANOSECONDS.toMinutes(MAX_FILLED_GAP_NANOS));
+            }
+            if (aggregate.getTransitBytes() > 0) {
+                System.out.printf("%,d bytes had no local endpoint (counted in protocol/flow totals only)%n",
+                        aggregate.getTransitBytes());
+            }
+
+            System.out.println("Bytes by protocol:");
+            for (int p = 0; p < PacketDecoder.PROTOCOL_NAMES.length; p++) {
+                long bytes = aggregate.getProtocolBytes(p);
+                if (bytes > 0) {
+                    System.out.printf("  %-9s %,15d%n", PacketDecoder.PROTOCOL_NAMES[p], bytes);
+                }
+            }
+
+            System.out.println("Top flows:");
+            for (TrafficAggregate.Flow flow : aggregate.topFlows(topFlows)) {
+                System.out.printf("  %-5s %-45s -> %-45s %,10d pkts %,15d bytes%n",
+                        flow.protocol, flow.source, flow.destination, flow.packets, flow.bytes);
+            }
+        }
+
+        public void writeCsv(Path csv) throws IOException {
+            List<NetworkData> series = toNetworkData();
+            try (BufferedWriter writer = Files.newBufferedWriter(csv, StandardCharsets.UTF_8)) {
+                writer.write("timestamp,download_kbps,upload_kbps,total_downloaded_kb,total_uploaded_kb");
+                for (String protocol : PacketDecoder.PROTOCOL_NAMES) {
+                    writer.write("," + protocol + "_bytes");
+                }
+                writer.newLine();
+                for (int i = 0; i < series.size(); i++) {
+                    NetworkData data = series.get(i);
+                    writer.write(data.getTimestamp() + "," + data.getDownloadSpeed() + "," + data.getUploadSpeed()
+                            + "," + data.getTotalDownloaded() + "," + data.getTotalUploaded());
+                    for (int p = 0; p < PacketDecoder.PROTOCOL_NAMES.length; p++) {
+                        writer.write("," + aggregate.getProtocolBytes(p, buckets[i]));
+                    }
+                    writer.newLine();
+                }
+            }
+        }
+
+        // Feeds the series into a server using the same protocol as BandwidthMonitorClient
+        public int sendTo(String host, int port) throws IOException, ClassNotFoundException {
+            List<NetworkData> series = toNetworkData();
+            try (Socket socket = new Socket(host, port)) {
+                ObjectOutputStream output = new ObjectOutputStream(socket.getOutputStream());
+                output.flush();
+                ObjectInputStream input = new ObjectInputStream(socket.getInputStream());
+                for (NetworkData data : series) {
+                    output.writeObject(data);
+                    output.flush();
+                    output.reset();
+                    input.readObject();
+                }
+            }
+            return series.size();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package bandwidthmonitor;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// Custom JFR events for deep profiling of the monitor's pipeline. They are only written while a
+// recording enables them, e.g. -XX:StartFlightRecording or `jcmd <pid> JFR.start`.
+public final class PipelineEvents {
+    private PipelineEvents() {
+    }
+
+    @Name("bandwidthmonitor.Sampling")
+    @Label("Network Sampling")
+    @Category({"Bandwidth Monitor", "Sampling"})
+    @Description("One read of kernel counters by the SamplingHub")
+    @StackTrace(false)
+    public static class SamplingEvent extends Event {
+        @Label("Subscribers")
+        public int subscribers;
+
+        @Label("Jitter")
+        @Timespan(Timespan.NANOSECONDS)
+        public long jitter;
+    }
+
+    @Name("bandwidthmonitor.ListenerDispatch")
+    @Label("Listener Dispatch")
+    @Category({"Bandwidth Monitor", "Sampling"})
+    @Description("Delivery of one sample to all NetworkDataListeners")
+    @StackTrace(false)
+    public static class ListenerDispatchEvent extends Event {
+        @Label("Listeners")
+        public int listeners;
+    }
+
+    @Name("bandwidthmonitor.FrameDecoded")
+    @Label("Frame Decoded")
+    @Category({"Bandwidth Monitor", "Server"})
+    @Description("One NetworkData frame read from an agent connection")
+    @StackTrace(false)
+    public static class FrameDecodedEvent extends Event {
+        @Label("Connection")
+        public String connection;
+
+        @Label("Frame Size")
+        @DataAmount
+        public long bytes;
+
+        @Label("Decode Time")
+        @Timespan(Timespan.NANOSECONDS)
+        public long decodeTime;
+    }
+
+    @Name("bandwidthmonitor.Reconnect")
+    @Label("Reconnect")
+    @Category({"Bandwidth Monitor", "Client"})
+    @Description("Client attempt to re-establish the server connection")
+    @StackTrace(false)
+    public static class ReconnectEvent extends Event {
+        @Label("Succeeded")
+        public boolean succeeded;
+
+        @Label("Cause")
+        public String cause;
+    }
+}
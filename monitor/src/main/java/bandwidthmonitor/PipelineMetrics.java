@@ -0,0 +1,195 @@
+package bandwidthmonitor;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+// Process-wide counters, gauges and histograms for the monitor's own pipeline, rendered in
+// Prometheus text format. Recording is a few atomic adds with no allocation; with
+// -Dbandwidth.metrics.enabled=false the ENABLED check folds away and recording is a no-op.
+public final class PipelineMetrics {
+    public static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("bandwidth.metrics.enabled", "true"));
+
+    // Upper bounds in nanoseconds, 50us to 10s
+    private static final long[] LATENCY_BUCKETS = {
+            TimeUnit.MICROSECONDS.toNanos(50), TimeUnit.MICROSECONDS.toNanos(100), TimeUnit.MICROSECONDS.toNanos(250),
+            TimeUnit.MICROSECONDS.toNanos(500), TimeUnit.MILLISECONDS.toNanos(1), TimeUnit.MILLISECONDS.toNanos(2),
+            TimeUnit.MILLISECONDS.toNanos(5), TimeUnit.MILLISECONDS.toNanos(10), TimeUnit.MILLISECONDS.toNanos(25),
+            TimeUnit.MILLISECONDS.toNanos(50), TimeUnit.MILLISECONDS.toNanos(100), TimeUnit.MILLISECONDS.toNanos(250),
+            TimeUnit.MILLISECONDS.toNanos(500), TimeUnit.SECONDS.toNanos(1), TimeUnit.SECONDS.toNanos(10)
+    };
+
+    private static final List<Collector> collectors = new CopyOnWriteArrayList<>();
+
+    // Sampling (SamplingHub, NetworkMonitor)
+    public static final Histogram SAMPLING_DURATION = histogram("bandwidth_sampling_duration_seconds",
+            "Time to read and compute one sample of kernel counters");
+    public static final Histogram SAMPLING_JITTER = histogram("bandwidth_sampling_jitter_seconds",
+            "Deviation of the actual sampling interval from the hub's base tick");
+    public static final Histogram LISTENER_DISPATCH = histogram("bandwidth_listener_dispatch_seconds",
+            "Time to deliver one sample to all NetworkDataListeners");
+
+    // Client sender
+    public static final Counter CLIENT_BYTES_SENT = counter("bandwidth_client_bytes_sent_total",
+            "Bytes written by the client to the server");
+    public static final Counter CLIENT_BYTES_RECEIVED = counter("bandwidth_client_bytes_received_total",
+            "Bytes read by the client from the server");
+    public static final Counter CLIENT_FRAMES_SENT = counter("bandwidth_client_frames_sent_total",
+            "NetworkData frames sent by the client");
+    public static final Counter CLIENT_FRAMES_RECEIVED = counter("bandwidth_client_frames_received_total",
+            "Reply frames received by the client");
+    public static final Counter CLIENT_RECONNECTS = counter("bandwidth_client_reconnects_total",
+            "Successful reconnects to the server");
+    public static final Counter CLIENT_RECONNECT_FAILURES = counter("bandwidth_client_reconnect_failures_total",
+            "Failed reconnect attempts");
+
+    // Server ingest
+    public static final Histogram SERVER_DECODE = histogram("bandwidth_server_decode_seconds",
+            "Time from the first byte of a frame arriving to the decoded NetworkData");
+
+    // Cluster mode (ClusterNode)
+    public static final Counter CLUSTER_REDIRECTS = counter("bandwidth_cluster_redirects_total",
+            "Agents told to reconnect to the node that owns them");
+    public static final Counter CLUSTER_FORWARDED_SAMPLES = counter("bandwidth_cluster_forwarded_samples_total",
+            "Samples from agents that cannot be redirected, forwarded to their owner node");
+    public static final Counter CLUSTER_MEMBERSHIP_CHANGES = counter("bandwidth_cluster_membership_changes_total",
+            "Times the set of live nodes on the hash ring changed");
+
+    private PipelineMetrics() {
+    }
+
+    public static Counter counter(String name, String help) {
+        Counter counter = new Counter(name, help);
+        collectors.add(counter);
+        return counter;
+    }
+
+    public static Histogram histogram(String name, String help) {
+        Histogram histogram = new Histogram(name, help, LATENCY_BUCKETS);
+        collectors.add(histogram);
+        return histogram;
+    }
+
+    // Evaluated only when metrics are scraped, so it costs nothing on the hot path
+    public static void gauge(String name, String help, LongSupplier value) {
+        collectors.add(out -> {
+            writeHeader(out, name, help, "gauge");
+            out.append(name).append(' ').append(value.getAsLong()).append('\n');
+        });
+    }
+
+    public static void register(Collector collector) {
+        collectors.add(collector);
+    }
+
+    public static void unregister(Collector collector) {
+        collectors.remove(collector);
+    }
+
+    public static String scrape() {
+        StringBuilder out = new StringBuilder(4096);
+        for (Collector collector : collectors) {
+            collector.write(out);
+        }
+        return out.toString();
+    }
+
+    public static void writeHeader(StringBuilder out, String name, String help, String type) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    public interface Collector {
+        void write(StringBuilder out);
+    }
+
+    public static final class Counter implements Collector {
+        private final String name;
+        private final String help;
+        private final AtomicLong value = new AtomicLong();
+
+        private Counter(String name, String help) {
+            this.name = name;
+            this.help = help;
+        }
+
+        public void increment() {
+            if (ENABLED) {
+                value.incrementAndGet();
+            }
+        }
+
+        public void add(long delta) {
+            if (ENABLED) {
+                value.addAndGet(delta);
+            }
+        }
+
+        public long get() {
+            return value.get();
+        }
+
+        @Override
+        public void write(StringBuilder out) {
+            writeHeader(out, name, help, "counter");
+            out.append(name).append(' ').append(value.get()).append('\n');
+        }
+    }
+
+    public static final class Histogram implements Collector {
+        private final String name;
+        private final String help;
+        private final long[] bounds;
+        private final String[] boundLabels; // le="..." values in seconds
+        private final AtomicLongArray buckets; // per bucket, last slot is +Inf
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sumNanos = new AtomicLong();
+
+        private Histogram(String name, String help, long[] bounds) {
+            this.name = name;
+            this.help = help;
+            this.bounds = bounds;
+            this.boundLabels = new String[bounds.length];
+            for (int i = 0; i < bounds.length; i++) {
+                boundLabels[i] = BigDecimal.valueOf(bounds[i], 9).stripTrailingZeros().toPlainString();
+            }
+            this.buckets = new AtomicLongArray(bounds.length + 1);
+        }
+
+        public void observeNanos(long nanos) {
+            if (!ENABLED) {
+                return;
+            }
+            int bucket = 0;
+            while (bucket < bounds.length && nanos > bounds[bucket]) {
+                bucket++;
+            }
+            buckets.incrementAndGet(bucket);
+            count.incrementAndGet();
+            sumNanos.addAndGet(nanos);
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        @Override
+        public void write(StringBuilder out) {
+            writeHeader(out, name, help, "histogram");
+            long cumulative = 0;
+            for (int i = 0; i < bounds.length; i++) {
+                cumulative += buckets.get(i);
+                out.append(name).append("_bucket{le=\"").append(boundLabels[i]).append("\"} ")
+                        .append(cumulative).append('\n');
+            }
+            cumulative += buckets.get(bounds.length);
+            out.append(name).append("_bucket{le=\"+Inf\"} ").append(cumulative).append('\n');
+            out.append(name).append("_sum ").append(sumNanos.get() / 1e9).append('\n');
+            out.append(name).append("_count ").append(count.get()).append('\n');
+        }
+    }
+}
@@ -0,0 +1,323 @@
+package bandwidthmonitor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Process-wide sampler shared by every NetworkMonitor. One timer thread reads the kernel counters
+// once per base tick, where the tick is the greatest common divisor of the subscribed intervals, so
+// subscribers at 100 ms, 1 s and 10 s are all served from the same reads. Each subscriber gets the
+// whole snapshot and picks its own interfaces from it. Ticks and due times sit on a grid anchored at
+// the hub's creation, so monitors started at different moments still line up on the same reads.
+// Intervals are rounded to a multiple of the minimum tick (50 ms, -Dbandwidth.sampling.min.tick.ms),
+// otherwise near-coprime intervals such as 999 and 1000 ms would need a 1 ms tick.
+public final class SamplingHub {
+    static final boolean IS_LINUX = System.getProperty("os.name").toLowerCase().contains("linux");
+    static final boolean IS_WINDOWS = System.getProperty("os.name").toLowerCase().contains("windows");
+    private static final Path PROC_NET_DEV = Paths.get("/proc/net/dev");
+    private static final long DEFAULT_MIN_TICK_MS = 50;
+    private static final SamplingHub SHARED = new SamplingHub(
+            Math.max(1, Long.getLong("bandwidth.sampling.min.tick.ms", DEFAULT_MIN_TICK_MS)));
+
+    private final long minTickMillis;
+    private final long epochNanos = System.nanoTime();
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "sampling-hub");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private ScheduledFuture<?> task; // Guarded by this
+    private volatile long tickMillis; // 0 while nobody is subscribed
+    private volatile Snapshot latest;
+
+    // Only touched by the timer thread
+    private long lastReadNanos = 0;
+    private long lastReadTickMillis = 0;
+    private final List<Subscription> due = new ArrayList<>();
+
+    // Package-private so tests can use their own hub instead of the process-wide one
+    SamplingHub(long minTickMillis) {
+        this.minTickMillis = minTickMillis;
+    }
+
+    public static SamplingHub shared() {
+        return SHARED;
+    }
+
+    // Calls back on the hub thread every intervalMs, rounded to the nearest multiple of the minimum
+    // tick, until the subscription is cancelled
+    public Subscription subscribe(long intervalMs, Consumer<Snapshot> callback) {
+        if (intervalMs <= 0) {
+            throw new IllegalArgumentException("Sampling interval must be positive: " + intervalMs);
+        }
+        long rounded = Math.max(1, Math.round((double) intervalMs / minTickMillis)) * minTickMillis;
+        Subscription subscription = new Subscription(rounded, callback);
+        synchronized (this) {
+            subscriptions.add(subscription);
+            reschedule();
+        }
+        return subscription;
+    }
+
+    // The latest snapshot if it is at most one tick old, otherwise a fresh read on the calling thread
+    public Snapshot current() {
+        Snapshot snapshot = latest;
+        long now = System.nanoTime();
+        long tick = tickMillis;
+        if (snapshot != null && tick > 0 && now - snapshot.nanos <= TimeUnit.MILLISECONDS.toNanos(tick)) {
+            return snapshot;
+        }
+        return read(now);
+    }
+
+    public long getTickMillis() {
+        return tickMillis;
+    }
+
+    private synchronized void unsubscribe(Subscription subscription) {
+        if (subscriptions.remove(subscription)) {
+            reschedule();
+        }
+    }
+
+    private void reschedule() {
+        long tick = 0;
+        for (Subscription subscription : subscriptions) {
+            tick = gcd(tick, subscription.intervalMillis);
+        }
+        if (tick == tickMillis && task != null) {
+            return;
+        }
+        if (task != null) {
+            task.cancel(false);
+            task = null;
+        }
+        tickMillis = tick;
+        if (tick > 0) {
+            long taskTick = tick;
+            long tickNanos = TimeUnit.MILLISECONDS.toNanos(tick);
+            long delay = tickNanos - Math.floorMod(System.nanoTime() - epochNanos, tickNanos);
+            task = timer.scheduleAtFixedRate(() -> tick(taskTick), delay, tickNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void tick(long tick) {
+        try {
+            long start = System.nanoTime();
+            long tickNanos = TimeUnit.MILLISECONDS.toNanos(tick);
+            // Ticks drift a little, so anything due within half a tick is served now. The list is
+            // reused because most ticks of a mixed-interval hub serve only some subscribers.
+            due.clear();
+            for (Subscription subscription : subscriptions) {
+                if (start - subscription.nextDueNanos >= -tickNanos / 2) {
+                    due.add(subscription);
+                }
+            }
+            if (due.isEmpty()) {
+                return;
+            }
+
+            PipelineEvents.SamplingEvent event = new PipelineEvents.SamplingEvent();
+            event.begin();
+            // Reads may skip ticks nobody needs, so jitter is the distance to the nearest tick boundary
+            long jitter = 0;
+            if (lastReadNanos != 0 && lastReadTickMillis == tick) {
+                long offset = (start - lastReadNanos) % tickNanos;
+                jitter = Math.min(offset, tickNanos - offset);
+            }
+            lastReadNanos = start;
+            lastReadTickMillis = tick;
+
+            Snapshot snapshot = read(start);
+            latest = snapshot;
+
+            PipelineMetrics.SAMPLING_DURATION.observeNanos(System.nanoTime() - start);
+            PipelineMetrics.SAMPLING_JITTER.observeNanos(jitter);
+            event.end();
+            if (event.shouldCommit()) {
+                event.subscribers = due.size();
+                event.jitter = jitter;
+                event.commit();
+            }
+
+            for (Subscription subscription : due) {
+                long interval = TimeUnit.MILLISECONDS.toNanos(subscription.intervalMillis);
+                subscription.nextDueNanos += interval;
+                if (start - subscription.nextDueNanos >= -tickNanos / 2) {
+                    // Fell behind (e.g. a slow subscriber or a suspended host): skip, don't burst
+                    subscription.nextDueNanos = nextOnGrid(start, interval);
+                }
+                try {
+                    subscription.callback.accept(snapshot);
+                } catch (RuntimeException e) {
+                    // Keep serving the other subscribers, and this one on its next interval
+                    e.printStackTrace();
+                }
+            }
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        } finally {
+            due.clear();
+        }
+    }
+
+    private static Snapshot read(long nanos) {
+        if (IS_LINUX) {
+            // Read the file directly; forking `cat` for every tick costs far more than the parse
+            try (BufferedReader reader = Files.newBufferedReader(PROC_NET_DEV)) {
+                return parseProcNetDev(reader, nanos);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        } else if (IS_WINDOWS) {
+            // Use netstat -e for Windows; it only reports totals across all adapters
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(new ProcessBuilder("netstat", "-e").start().getInputStream()))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.contains("Bytes")) {
+                        String[] parts = line.trim().split("\\s+");
+                        return new Snapshot(nanos, new String[0], new long[0], new long[0],
+                                Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+                    }
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        return new Snapshot(nanos, new String[0], new long[0], new long[0], 0, 0);
+    }
+
+    // Per-interface received and transmitted bytes from /proc/net/dev content
+    static Snapshot parseProcNetDev(BufferedReader reader, long nanos) throws IOException {
+        String[] names = new String[16];
+        long[] rxBytes = new long[16];
+        long[] txBytes = new long[16];
+        long totalRx = 0;
+        long totalTx = 0;
+        int n = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            int colon = line.indexOf(':');
+            if (colon < 0) {
+                continue;
+            }
+            // Large counters can run into the colon ("eth0:123..."), so split there rather than on spaces
+            String[] parts = line.substring(colon + 1).trim().split("\\s+");
+            if (n == names.length) {
+                names = Arrays.copyOf(names, n * 2);
+                rxBytes = Arrays.copyOf(rxBytes, n * 2);
+                txBytes = Arrays.copyOf(txBytes, n * 2);
+            }
+            names[n] = line.substring(0, colon).trim();
+            rxBytes[n] = Long.parseLong(parts[0]); // Received bytes
+            txBytes[n] = Long.parseLong(parts[8]); // Transmitted bytes
+            totalRx += rxBytes[n];
+            totalTx += txBytes[n];
+            n++;
+        }
+        return new Snapshot(nanos, Arrays.copyOf(names, n), Arrays.copyOf(rxBytes, n), Arrays.copyOf(txBytes, n),
+                totalRx, totalTx);
+    }
+
+    // First multiple of interval after now, counted from the hub's epoch
+    private long nextOnGrid(long now, long interval) {
+        return epochNanos + (Math.floorDiv(now - epochNanos, interval) + 1) * interval;
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    // Kernel byte counters at one instant, shared read-only by all subscribers
+    public static final class Snapshot {
+        final long nanos; // System.nanoTime() when the read started
+        private final String[] interfaces;
+        private final long[] rxBytes;
+        private final long[] txBytes;
+        private final long totalRxBytes;
+        private final long totalTxBytes;
+
+        Snapshot(long nanos, String[] interfaces, long[] rxBytes, long[] txBytes, long totalRxBytes, long totalTxBytes) {
+            this.nanos = nanos;
+            this.interfaces = interfaces;
+            this.rxBytes = rxBytes;
+            this.txBytes = txBytes;
+            this.totalRxBytes = totalRxBytes;
+            this.totalTxBytes = totalTxBytes;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        public List<String> getInterfaces() {
+            return Collections.unmodifiableList(Arrays.asList(interfaces));
+        }
+
+        // Bytes received on one interface, or on all of them when networkInterface is null
+        public long getRxBytes(String networkInterface) {
+            return bytes(networkInterface, rxBytes, totalRxBytes);
+        }
+
+        public long getTxBytes(String networkInterface) {
+            return bytes(networkInterface, txBytes, totalTxBytes);
+        }
+
+        private long bytes(String networkInterface, long[] perInterface, long total) {
+            // Without per-interface counters (Windows) every view sees the totals
+            if (networkInterface == null || interfaces.length == 0) {
+                return total;
+            }
+            for (int i = 0; i < interfaces.length; i++) {
+                if (interfaces[i].equals(networkInterface)) {
+                    return perInterface[i];
+                }
+            }
+            return 0;
+        }
+    }
+
+    public final class Subscription {
+        private final long intervalMillis;
+        private final Consumer<Snapshot> callback;
+        private long nextDueNanos; // Only touched by the timer thread once subscribed
+
+        private Subscription(long intervalMillis, Consumer<Snapshot> callback) {
+            this.intervalMillis = intervalMillis;
+            this.callback = callback;
+            // First sample on the next multiple of the interval, but not within half an interval of now
+            long interval = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+            long now = System.nanoTime();
+            long next = nextOnGrid(now, interval);
+            this.nextDueNanos = next - now < interval / 2 ? next + interval : next;
+        }
+
+        // The interval actually served, after rounding to the minimum tick
+        public long getIntervalMillis() {
+            return intervalMillis;
+        }
+
+        public void cancel() {
+            unsubscribe(this);
+        }
+    }
+}
@@ -0,0 +1,451 @@
+package bandwidthmonitor;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Active throughput test against a ThroughputTestServer. Parallel TCP streams carry data for a fixed
+// time; the sender uses FileChannel.transferTo (sendfile) from a payload file in the page cache, or
+// a shared direct ByteBuffer, and the receiver reads into a direct buffer and discards it, so no
+// bytes pass through the Java heap.
+public class ThroughputTest {
+    static final int MAGIC = 0x54505554; // "TPUT"
+    static final byte KIND_CONTROL = 0;
+    static final byte KIND_DATA = 1;
+    static final int READY = 1;
+    static final int MAX_STREAMS = 64;
+    static final int MAX_DURATION_MS = 60000;
+
+    private static final int PAYLOAD_SIZE = 64 << 20;
+    private static final int RECEIVE_BUFFER_SIZE = 1 << 20;
+    private static final long TRANSFER_CHUNK = 8 << 20;
+    private static final long TIMELINE_INTERVAL_MS = 100;
+    private static final double RAMP_UP_FRACTION = 0.9; // Ramp-up ends at 90% of the steady rate
+    private static final boolean DIRECT_SENDER = "direct".equals(System.getProperty("bandwidth.throughput.sender"));
+
+    private static Path payloadFile;
+    private static ByteBuffer payloadBuffer;
+
+    public enum Direction {
+        UPLOAD, // Client sends, server receives
+        DOWNLOAD // Server sends, client receives
+    }
+
+    private final String host;
+    private final int port;
+
+    public ThroughputTest(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String host = "localhost";
+        int port = 10000;
+        int streams = 4;
+        int seconds = 10;
+        Direction direction = Direction.UPLOAD;
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            switch (args[i]) {
+                case "--host": host = value; i++; break;
+                case "--port": port = Integer.parseInt(value); i++; break;
+                case "--streams": streams = Integer.parseInt(value); i++; break;
+                case "--duration": seconds = Integer.parseInt(value); i++; break;
+                case "--direction": direction = Direction.valueOf(value.toUpperCase()); i++; break;
+                default:
+                    System.out.println("Usage: java -cp <jar> bandwidthmonitor.ThroughputTest [--host h] [--port p]"
+                            + " [--streams n] [--duration seconds] [--direction upload|download]");
+                    return;
+            }
+        }
+        System.out.println(new ThroughputTest(host, port).run(direction, streams, seconds * 1000).format());
+    }
+
+    public Result run(Direction direction, int streams, int durationMillis) throws IOException, InterruptedException {
+        if (direction == Direction.UPLOAD) {
+            preparePayload();
+        }
+        try (Socket control = connectControl()) {
+            control.setTcpNoDelay(true);
+            DataOutputStream controlOut = new DataOutputStream(control.getOutputStream());
+            DataInputStream controlIn = new DataInputStream(control.getInputStream());
+            controlOut.writeInt(MAGIC);
+            controlOut.writeByte(KIND_CONTROL);
+            controlOut.writeByte(direction.ordinal());
+            controlOut.writeInt(streams);
+            controlOut.writeInt(durationMillis);
+            controlOut.flush();
+            long testId = controlIn.readLong();
+            if (testId < 0) {
+                throw new IOException("Throughput test rejected: " + controlIn.readUTF());
+            }
+
+            SocketChannel[] channels = new SocketChannel[streams];
+            try {
+                for (int i = 0; i < streams; i++) {
+                    channels[i] = SocketChannel.open(new InetSocketAddress(host, port));
+                    ByteBuffer header = ByteBuffer.allocate(4 + 1 + 8 + 4);
+                    header.putInt(MAGIC).put(KIND_DATA).putLong(testId).putInt(i).flip();
+                    writeFully(channels[i], header);
+                }
+                if (controlIn.readInt() != READY) {
+                    throw new IOException("Server did not start the test");
+                }
+                return direction == Direction.UPLOAD
+                        ? runUpload(channels, durationMillis, controlIn)
+                        : runDownload(channels, durationMillis, controlIn);
+            } finally {
+                for (SocketChannel channel : channels) {
+                    if (channel != null) {
+                        channel.close();
+                    }
+                }
+            }
+        }
+    }
+
+    private Result runUpload(SocketChannel[] channels, int durationMillis, DataInputStream controlIn)
+            throws IOException, InterruptedException {
+        int streams = channels.length;
+        StreamCounter[] counters = newCounters(streams);
+        long retransmitsBefore = TcpStats.retransmittedSegments();
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < streams; i++) {
+            SocketChannel channel = channels[i];
+            StreamCounter counter = counters[i];
+            threads.add(startThread("throughput-send-" + i, () -> {
+                try {
+                    send(channel, deadline, counter);
+                    channel.shutdownOutput();
+                } catch (IOException e) {
+                    counter.error = e;
+                }
+            }));
+        }
+        double[] timeline = sampleTimeline(counters, start, threads);
+        long elapsed = System.nanoTime() - start;
+        long retransmitsAfter = TcpStats.retransmittedSegments();
+
+        // Goodput is what the server actually received, not what we managed to hand to the kernel
+        int reported = controlIn.readInt();
+        long[] received = new long[reported];
+        for (int i = 0; i < reported; i++) {
+            received[i] = controlIn.readLong();
+        }
+        controlIn.readLong(); // Server-side retransmits are meaningless for an upload
+        rethrow(counters);
+        return new Result(Direction.UPLOAD, received, elapsed, timeline,
+                retransmitsBefore < 0 || retransmitsAfter < 0 ? -1 : retransmitsAfter - retransmitsBefore);
+    }
+
+    private Result runDownload(SocketChannel[] channels, int durationMillis, DataInputStream controlIn)
+            throws IOException, InterruptedException {
+        int streams = channels.length;
+        StreamCounter[] counters = newCounters(streams);
+        long start = System.nanoTime();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < streams; i++) {
+            SocketChannel channel = channels[i];
+            StreamCounter counter = counters[i];
+            threads.add(startThread("throughput-receive-" + i, () -> {
+                try {
+                    receive(channel, counter);
+                } catch (IOException e) {
+                    counter.error = e;
+                }
+            }));
+        }
+        double[] timeline = sampleTimeline(counters, start, threads);
+        long elapsed = System.nanoTime() - start;
+
+        int reported = controlIn.readInt();
+        for (int i = 0; i < reported; i++) {
+            controlIn.readLong(); // Bytes the server sent; we count what arrived
+        }
+        long retransmits = controlIn.readLong(); // Sender side, i.e. the server host
+        rethrow(counters);
+        long[] received = new long[streams];
+        for (int i = 0; i < streams; i++) {
+            received[i] = counters[i].bytes;
+        }
+        return new Result(Direction.DOWNLOAD, received, elapsed, timeline, retransmits);
+    }
+
+    // Aggregate goodput in Mbit/s per TIMELINE_INTERVAL_MS until all stream threads are done
+    private static double[] sampleTimeline(StreamCounter[] counters, long start, List<Thread> threads)
+            throws InterruptedException {
+        List<Double> samples = new ArrayList<>();
+        long previousBytes = 0;
+        long previousTime = start;
+        boolean running = true;
+        while (running) {
+            Thread.sleep(TIMELINE_INTERVAL_MS);
+            running = false;
+            for (Thread thread : threads) {
+                running |= thread.isAlive();
+            }
+            long now = System.nanoTime();
+            long bytes = 0;
+            for (StreamCounter counter : counters) {
+                bytes += counter.bytes;
+            }
+            if (running || bytes > previousBytes) {
+                samples.add(mbps(bytes - previousBytes, now - previousTime));
+            }
+            previousBytes = bytes;
+            previousTime = now;
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double[] timeline = new double[samples.size()];
+        for (int i = 0; i < timeline.length; i++) {
+            timeline[i] = samples.get(i);
+        }
+        return timeline;
+    }
+
+    // Writes payload bytes until the deadline, via sendfile or a shared direct buffer
+    static void send(SocketChannel channel, long deadlineNanos, StreamCounter counter) throws IOException {
+        if (DIRECT_SENDER) {
+            ByteBuffer payload = payloadBuffer().duplicate();
+            while (System.nanoTime() < deadlineNanos) {
+                if (!payload.hasRemaining()) {
+                    payload.clear();
+                }
+                counter.bytes += channel.write(payload);
+            }
+            return;
+        }
+        try (FileChannel file = FileChannel.open(payloadFile())) {
+            long size = file.size();
+            long position = 0;
+            while (System.nanoTime() < deadlineNanos) {
+                long sent = file.transferTo(position, Math.min(TRANSFER_CHUNK, size - position), channel);
+                position = (position + sent) % size;
+                counter.bytes += sent;
+            }
+        }
+    }
+
+    // Reads and discards until the peer closes its side
+    static void receive(SocketChannel channel, StreamCounter counter) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(RECEIVE_BUFFER_SIZE);
+        while (true) {
+            int read = channel.read(buffer);
+            if (read < 0) {
+                return;
+            }
+            counter.bytes += read;
+            buffer.clear();
+        }
+    }
+
+    static void writeFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private Socket connectControl() throws IOException {
+        try {
+            return new Socket(host, port);
+        } catch (ConnectException e) {
+            throw new IOException("No throughput test listener on " + host + ":" + port
+                    + " (the server only accepts tests when started with -Dbandwidth.throughput.port)", e);
+        }
+    }
+
+    static Thread startThread(String name, Runnable task) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    static StreamCounter[] newCounters(int streams) {
+        StreamCounter[] counters = new StreamCounter[streams];
+        for (int i = 0; i < streams; i++) {
+            counters[i] = new StreamCounter();
+        }
+        return counters;
+    }
+
+    private static void rethrow(StreamCounter[] counters) throws IOException {
+        for (StreamCounter counter : counters) {
+            if (counter.error != null) {
+                throw counter.error;
+            }
+        }
+    }
+
+    // Builds the payload up front so generating it doesn't show up as ramp-up time
+    static void preparePayload() throws IOException {
+        if (DIRECT_SENDER) {
+            payloadBuffer();
+        } else {
+            payloadFile();
+        }
+    }
+
+    // Random bytes so nothing on the path can compress them; lives in the page cache after the first read
+    private static synchronized Path payloadFile() throws IOException {
+        if (payloadFile == null) {
+            Path file = Files.createTempFile("bandwidth-throughput", ".bin");
+            file.toFile().deleteOnExit();
+            byte[] chunk = new byte[1 << 20];
+            Random random = new Random();
+            try (RandomAccessFile out = new RandomAccessFile(file.toFile(), "rw")) {
+                for (int written = 0; written < PAYLOAD_SIZE; written += chunk.length) {
+                    random.nextBytes(chunk);
+                    out.write(chunk);
+                }
+            }
+            payloadFile = file;
+        }
+        return payloadFile;
+    }
+
+    private static synchronized ByteBuffer payloadBuffer() {
+        if (payloadBuffer == null) {
+            byte[] bytes = new byte[4 << 20];
+            new Random().nextBytes(bytes);
+            ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+            buffer.put(bytes).flip();
+            payloadBuffer = buffer.asReadOnlyBuffer();
+        }
+        return payloadBuffer;
+    }
+
+    static double mbps(long bytes, long nanos) {
+        return nanos <= 0 ? 0 : bytes * 8 / (nanos / 1e9) / 1e6;
+    }
+
+    // Written by one stream thread, read by the timeline sampler
+    static final class StreamCounter {
+        volatile long bytes;
+        volatile IOException error;
+    }
+
+    public static final class Result {
+        private final Direction direction;
+        private final long[] streamBytes;
+        private final long elapsedNanos;
+        private final double[] timelineMbps;
+        private final long retransmits;
+
+        Result(Direction direction, long[] streamBytes, long elapsedNanos, double[] timelineMbps, long retransmits) {
+            this.direction = direction;
+            this.streamBytes = streamBytes;
+            this.elapsedNanos = elapsedNanos;
+            this.timelineMbps = timelineMbps;
+            this.retransmits = retransmits;
+        }
+
+        public double getStreamGoodputMbps(int stream) {
+            return mbps(streamBytes[stream], elapsedNanos);
+        }
+
+        public double getAggregateGoodputMbps() {
+            long total = 0;
+            for (long bytes : streamBytes) {
+                total += bytes;
+            }
+            return mbps(total, elapsedNanos);
+        }
+
+        // Time until the aggregate rate first reached 90% of the steady rate (median of the second half)
+        public long getRampUpMillis() {
+            if (timelineMbps.length == 0) {
+                return 0;
+            }
+            double[] steady = Arrays.copyOfRange(timelineMbps, timelineMbps.length / 2, timelineMbps.length);
+            Arrays.sort(steady);
+            double target = steady[steady.length / 2] * RAMP_UP_FRACTION;
+            for (int i = 0; i < timelineMbps.length; i++) {
+                if (timelineMbps[i] >= target) {
+                    return i * TIMELINE_INTERVAL_MS;
+                }
+            }
+            return timelineMbps.length * TIMELINE_INTERVAL_MS;
+        }
+
+        // TCP segments retransmitted on the sending host during the test (all sockets), -1 if unknown
+        public long getRetransmits() {
+            return retransmits;
+        }
+
+        public String format() {
+            StringBuilder out = new StringBuilder();
+            out.append(String.format("%s, %d streams, %.1f s%n", direction == Direction.UPLOAD
+                    ? "Upload (client -> server)" : "Download (server -> client)", streamBytes.length, elapsedNanos / 1e9));
+            for (int i = 0; i < streamBytes.length; i++) {
+                out.append(String.format("  stream %2d: %,12.1f Mbit/s  (%,d bytes)%n",
+                        i, getStreamGoodputMbps(i), streamBytes[i]));
+            }
+            out.append(String.format("  aggregate: %,12.1f Mbit/s%n", getAggregateGoodputMbps()));
+            out.append(String.format("  ramp-up:   %d ms%n", getRampUpMillis()));
+            out.append("  retransmits: ").append(retransmits < 0 ? "n/a" : String.valueOf(retransmits)).append('\n');
+            return out.toString();
+        }
+    }
+
+    // Host-wide TCP counters from /proc/net/snmp (Linux only)
+    static final class TcpStats {
+        private TcpStats() {
+        }
+
+        static long retransmittedSegments() {
+            Path snmp = Paths.get("/proc/net/snmp");
+            if (!Files.isReadable(snmp)) {
+                return -1;
+            }
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(Files.newInputStream(snmp),
+                    StandardCharsets.US_ASCII))) {
+                String header = null;
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.startsWith("Tcp:")) {
+                        continue;
+                    }
+                    if (header == null) {
+                        header = line;
+                        continue;
+                    }
+                    String[] names = header.split("\\s+");
+                    String[] values = line.split("\\s+");
+                    for (int i = 1; i < names.length && i < values.length; i++) {
+                        if (names[i].equals("RetransSegs")) {
+                            return Long.parseLong(values[i]);
+                        }
+                    }
+                    return -1;
+                }
+            } catch (IOException | NumberFormatException e) {
+                return -1;
+            }
+            return -1;
+        }
+    }
+}
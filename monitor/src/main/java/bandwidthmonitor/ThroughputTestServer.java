@@ -0,0 +1,253 @@
+package bandwidthmonitor;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Server side of ThroughputTest. A client opens a control connection describing the test, then one
+// data connection per stream; once all streams have joined the server either discards what the
+// client sends (upload) or sends for the requested time (download) and reports back on the control
+// connection. One test runs at a time so tests don't measure each other.
+public class ThroughputTestServer {
+    private static final long JOIN_TIMEOUT_MS = 5000;
+    private static final long UPLOAD_GRACE_MS = 10000; // Time allowed past the duration for the client to finish
+
+    private final ServerSocketChannel serverChannel;
+    private final AtomicReference<Session> activeSession = new AtomicReference<>();
+    private final AtomicLong nextTestId = new AtomicLong(1);
+
+    private ThroughputTestServer(ServerSocketChannel serverChannel) {
+        this.serverChannel = serverChannel;
+    }
+
+    // Tests are unauthenticated and can saturate the link, so they are off unless
+    // -Dbandwidth.throughput.port is set; -Dbandwidth.throughput.bind limits the listening address
+    static void startIfConfigured() {
+        int port = Integer.getInteger("bandwidth.throughput.port", 0);
+        if (port <= 0) {
+            return;
+        }
+        String bind = System.getProperty("bandwidth.throughput.bind");
+        try {
+            InetSocketAddress address = bind == null ? new InetSocketAddress(port) : new InetSocketAddress(bind, port);
+            start(address);
+            System.out.println("Throughput tests accepted on " + address);
+        } catch (IOException e) {
+            System.out.println("Could not start throughput test listener: " + e.getMessage());
+        }
+    }
+
+    public static ThroughputTestServer start(int port) throws IOException {
+        return start(new InetSocketAddress(port));
+    }
+
+    public static ThroughputTestServer start(InetSocketAddress address) throws IOException {
+        ServerSocketChannel channel = ServerSocketChannel.open();
+        channel.bind(address);
+        ThroughputTestServer server = new ThroughputTestServer(channel);
+        ThroughputTest.startThread("throughput-accept", server::acceptLoop);
+        return server;
+    }
+
+    int getPort() throws IOException {
+        return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+    }
+
+    void close() throws IOException {
+        serverChannel.close();
+    }
+
+    private void acceptLoop() {
+        while (serverChannel.isOpen()) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                ThroughputTest.startThread("throughput-connection", () -> handle(channel));
+            } catch (IOException e) {
+                if (serverChannel.isOpen()) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private void handle(SocketChannel channel) {
+        try {
+            ByteBuffer header = readExactly(channel, 5);
+            if (header.getInt() != ThroughputTest.MAGIC) {
+                channel.close();
+                return;
+            }
+            byte kind = header.get();
+            if (kind == ThroughputTest.KIND_CONTROL) {
+                runControl(channel);
+            } else if (kind == ThroughputTest.KIND_DATA) {
+                joinSession(channel);
+            } else {
+                channel.close();
+            }
+        } catch (IOException | RuntimeException e) {
+            // Anything a malformed handshake can throw must still release the connection
+            System.out.println("Throughput test connection failed: " + e);
+            closeQuietly(channel);
+        }
+    }
+
+    private void joinSession(SocketChannel channel) throws IOException {
+        ByteBuffer header = readExactly(channel, 12);
+        long testId = header.getLong();
+        int stream = header.getInt();
+        Session session = activeSession.get();
+        // The claim is atomic, so two connections naming the same stream can't both join
+        if (session == null || session.id != testId || stream < 0 || stream >= session.channels.length()
+                || !session.channels.compareAndSet(stream, null, channel)) {
+            channel.close();
+            return;
+        }
+        if (activeSession.get() != session) {
+            // The session ended while joining and may have closed its streams already
+            channel.close();
+            return;
+        }
+        session.joined.countDown();
+    }
+
+    private void runControl(SocketChannel control) throws IOException {
+        DataInputStream in = new DataInputStream(Channels.newInputStream(control));
+        DataOutputStream out = new DataOutputStream(Channels.newOutputStream(control));
+        int directionIndex = in.readByte();
+        int streams = in.readInt();
+        int durationMillis = in.readInt();
+
+        ThroughputTest.Direction[] directions = ThroughputTest.Direction.values();
+        if (directionIndex < 0 || directionIndex >= directions.length) {
+            reject(out, "unknown direction " + directionIndex);
+            control.close();
+            return;
+        }
+        ThroughputTest.Direction direction = directions[directionIndex];
+        if (streams < 1 || streams > ThroughputTest.MAX_STREAMS
+                || durationMillis < 1 || durationMillis > ThroughputTest.MAX_DURATION_MS) {
+            reject(out, "at most " + ThroughputTest.MAX_STREAMS + " streams and "
+                    + ThroughputTest.MAX_DURATION_MS / 1000 + " seconds");
+            control.close();
+            return;
+        }
+        Session session = new Session(nextTestId.getAndIncrement(), streams);
+        if (!activeSession.compareAndSet(null, session)) {
+            reject(out, "another test is running");
+            control.close();
+            return;
+        }
+
+        try {
+            out.writeLong(session.id);
+            out.flush();
+            if (!session.joined.await(JOIN_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                System.out.println("Throughput test " + session.id + ": not all streams connected");
+                return;
+            }
+            if (direction == ThroughputTest.Direction.DOWNLOAD) {
+                ThroughputTest.preparePayload();
+            }
+            out.writeInt(ThroughputTest.READY);
+            out.flush();
+            System.out.println("Throughput test " + session.id + ": " + direction + ", " + streams + " streams, "
+                    + durationMillis + " ms");
+
+            ThroughputTest.StreamCounter[] counters = ThroughputTest.newCounters(streams);
+            long retransmitsBefore = ThroughputTest.TcpStats.retransmittedSegments();
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+            List<Thread> threads = new ArrayList<>();
+            for (int i = 0; i < streams; i++) {
+                SocketChannel channel = session.channels.get(i);
+                ThroughputTest.StreamCounter counter = counters[i];
+                threads.add(ThroughputTest.startThread("throughput-stream-" + i, () -> {
+                    try {
+                        if (direction == ThroughputTest.Direction.DOWNLOAD) {
+                            ThroughputTest.send(channel, deadline, counter);
+                            channel.shutdownOutput();
+                        } else {
+                            ThroughputTest.receive(channel, counter);
+                        }
+                    } catch (IOException e) {
+                        counter.error = e;
+                    }
+                }));
+            }
+            long joinBy = System.currentTimeMillis() + durationMillis + UPLOAD_GRACE_MS;
+            for (Thread thread : threads) {
+                thread.join(Math.max(1, joinBy - System.currentTimeMillis()));
+            }
+            long retransmitsAfter = ThroughputTest.TcpStats.retransmittedSegments();
+
+            out.writeInt(streams);
+            for (ThroughputTest.StreamCounter counter : counters) {
+                out.writeLong(counter.bytes);
+            }
+            boolean known = direction == ThroughputTest.Direction.DOWNLOAD && retransmitsBefore >= 0
+                    && retransmitsAfter >= 0;
+            out.writeLong(known ? retransmitsAfter - retransmitsBefore : -1);
+            out.flush();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            activeSession.set(null);
+            for (int i = 0; i < session.channels.length(); i++) {
+                closeQuietly(session.channels.get(i));
+            }
+            closeQuietly(control);
+        }
+    }
+
+    private static void reject(DataOutputStream out, String reason) throws IOException {
+        out.writeLong(-1);
+        out.writeUTF(reason);
+        out.flush();
+    }
+
+    private static ByteBuffer readExactly(SocketChannel channel, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("Connection closed during handshake");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void closeQuietly(SocketChannel channel) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Nothing left to clean up
+        }
+    }
+
+    private static final class Session {
+        final long id;
+        final AtomicReferenceArray<SocketChannel> channels;
+        final CountDownLatch joined;
+
+        Session(long id, int streams) {
+            this.id = id;
+            this.channels = new AtomicReferenceArray<>(streams);
+            this.joined = new CountDownLatch(streams);
+        }
+    }
+}
@@ -0,0 +1,384 @@
+package bandwidthmonitor;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Per-time-bucket byte counts plus protocol and flow breakdowns built from decoded packets.
+// Each capture segment fills its own instance on one thread; instances are merged afterwards.
+// Buckets are stored sparsely in fixed-size chunks, so a corrupt or far out-of-order timestamp
+// costs one chunk instead of a dense array spanning the whole gap.
+public class TrafficAggregate implements PacketDecoder.PacketSink {
+    private static final int CHUNK_BITS = 8;
+    private static final int CHUNK_BUCKETS = 1 << CHUNK_BITS;
+
+    private final long baseNanos;
+    private final long intervalNanos;
+    private final AddressMatcher local;
+
+    private final Map<Long, Chunk> chunks = new HashMap<>();
+    // Packets arrive mostly in time order, so the previous chunk is usually the right one
+    private Chunk lastChunk;
+    private long lastChunkIndex;
+    private final FlowTable flows = new FlowTable();
+    private long packets;
+    private long bytes;
+    private long transitBytes;
+
+    public TrafficAggregate(long baseNanos, long intervalNanos, AddressMatcher local) {
+        this.baseNanos = baseNanos;
+        this.intervalNanos = intervalNanos;
+        this.local = local;
+    }
+
+    @Override
+    public void packet(long timestampNanos, int wireLength, int protocol,
+                       long srcHigh, long srcLow, long dstHigh, long dstLow, int srcPort, int dstPort) {
+        long bucket = Math.floorDiv(timestampNanos - baseNanos, intervalNanos);
+        Chunk chunk = chunk(bucket >> CHUNK_BITS);
+        int i = (int) (bucket & (CHUNK_BUCKETS - 1));
+
+        if (protocol != PacketDecoder.PROTOCOL_NON_IP && local.matches(dstHigh, dstLow)) {
+            chunk.downloadBytes[i] += wireLength;
+        } else if (protocol != PacketDecoder.PROTOCOL_NON_IP && local.matches(srcHigh, srcLow)) {
+            chunk.uploadBytes[i] += wireLength;
+        } else {
+            transitBytes += wireLength;
+        }
+        chunk.protocolBytes[protocol][i] += wireLength;
+        chunk.packets[i]++;
+        if (protocol != PacketDecoder.PROTOCOL_NON_IP) {
+            flows.add(srcHigh, srcLow, dstHigh, dstLow, srcPort, dstPort, protocol, wireLength);
+        }
+        packets++;
+        bytes += wireLength;
+    }
+
+    private Chunk chunk(long index) {
+        if (lastChunk != null && lastChunkIndex == index) {
+            return lastChunk;
+        }
+        Chunk chunk = chunks.computeIfAbsent(index, k -> new Chunk());
+        lastChunk = chunk;
+        lastChunkIndex = index;
+        return chunk;
+    }
+
+    // Both aggregates must use the same base and interval
+    public void merge(TrafficAggregate other) {
+        for (Map.Entry<Long, Chunk> entry : other.chunks.entrySet()) {
+            chunk(entry.getKey()).add(entry.getValue());
+        }
+        flows.merge(other.flows);
+        packets += other.packets;
+        bytes += other.bytes;
+        transitBytes += other.transitBytes;
+    }
+
+    // Buckets to report, in time order: every bucket with packets, plus the empty buckets between
+    // two of them when the gap is at most maxGapBuckets. Longer gaps are left out rather than filled.
+    public long[] seriesBuckets(long maxGapBuckets) {
+        Long[] indexes = chunks.keySet().toArray(new Long[0]);
+        Arrays.sort(indexes);
+        long[] series = new long[64];
+        int n = 0;
+        boolean first = true;
+        long previous = 0;
+        for (Long index : indexes) {
+            Chunk chunk = chunks.get(index);
+            for (int i = 0; i < CHUNK_BUCKETS; i++) {
+                if (chunk.packets[i] == 0) {
+                    continue;
+                }
+                long bucket = (index << CHUNK_BITS) | i;
+                long from = !first && bucket - previous - 1 <= maxGapBuckets ? previous + 1 : bucket;
+                for (long b = from; b <= bucket; b++) {
+                    if (n == series.length) {
+                        series = Arrays.copyOf(series, n * 2);
+                    }
+                    series[n++] = b;
+                }
+                previous = bucket;
+                first = false;
+            }
+        }
+        return Arrays.copyOf(series, n);
+    }
+
+    public long getBaseNanos() {
+        return baseNanos;
+    }
+
+    public long getIntervalNanos() {
+        return intervalNanos;
+    }
+
+    // Bucket b covers [base + b * interval, base + (b + 1) * interval); buckets without packets read as 0
+    public long getDownloadBytes(long bucket) {
+        Chunk chunk = chunks.get(bucket >> CHUNK_BITS);
+        return chunk == null ? 0 : chunk.downloadBytes[(int) (bucket & (CHUNK_BUCKETS - 1))];
+    }
+
+    public long getUploadBytes(long bucket) {
+        Chunk chunk = chunks.get(bucket >> CHUNK_BITS);
+        return chunk == null ? 0 : chunk.uploadBytes[(int) (bucket & (CHUNK_BUCKETS - 1))];
+    }
+
+    public long getProtocolBytes(int protocol, long bucket) {
+        Chunk chunk = chunks.get(bucket >> CHUNK_BITS);
+        return chunk == null ? 0 : chunk.protocolBytes[protocol][(int) (bucket & (CHUNK_BUCKETS - 1))];
+    }
+
+    public long getProtocolBytes(int protocol) {
+        long total = 0;
+        for (Chunk chunk : chunks.values()) {
+            for (long bytes : chunk.protocolBytes[protocol]) {
+                total += bytes;
+            }
+        }
+        return total;
+    }
+
+    public long getPackets() {
+        return packets;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    // Bytes where neither endpoint was a local address
+    public long getTransitBytes() {
+        return transitBytes;
+    }
+
+    public List<Flow> topFlows(int limit) {
+        return flows.top(limit);
+    }
+
+    private static final class Chunk {
+        final long[] downloadBytes = new long[CHUNK_BUCKETS];
+        final long[] uploadBytes = new long[CHUNK_BUCKETS];
+        final long[][] protocolBytes = new long[PacketDecoder.PROTOCOL_NAMES.length][CHUNK_BUCKETS];
+        final long[] packets = new long[CHUNK_BUCKETS];
+
+        void add(Chunk other) {
+            for (int i = 0; i < CHUNK_BUCKETS; i++) {
+                downloadBytes[i] += other.downloadBytes[i];
+                uploadBytes[i] += other.uploadBytes[i];
+                packets[i] += other.packets[i];
+                for (int p = 0; p < protocolBytes.length; p++) {
+                    protocolBytes[p][i] += other.protocolBytes[p][i];
+                }
+            }
+        }
+    }
+
+    public static final class Flow {
+        public final String source;
+        public final String destination;
+        public final String protocol;
+        public final long packets;
+        public final long bytes;
+
+        Flow(String source, String destination, String protocol, long packets, long bytes) {
+            this.source = source;
+            this.destination = destination;
+            this.protocol = protocol;
+            this.packets = packets;
+            this.bytes = bytes;
+        }
+    }
+
+    // Local addresses and prefixes used to tell download from upload
+    public static final class AddressMatcher {
+        private long[] highs = new long[0];
+        private long[] lows = new long[0];
+        private int[] prefixLengths = new int[0];
+
+        // Accepts "10.0.0.5", "192.168.0.0/16", "fe80::1" or "2001:db8::/32"
+        public void add(String spec) {
+            String[] parts = spec.trim().split("/");
+            byte[] address;
+            try {
+                address = InetAddress.getByName(parts[0]).getAddress();
+            } catch (UnknownHostException e) {
+                throw new IllegalArgumentException("Invalid address: " + spec, e);
+            }
+            long high;
+            long low;
+            int prefix;
+            if (address.length == 4) {
+                high = 0;
+                low = 0xFFFF00000000L | ((address[0] & 0xFFL) << 24) | ((address[1] & 0xFFL) << 16)
+                        | ((address[2] & 0xFFL) << 8) | (address[3] & 0xFFL);
+                prefix = 96 + (parts.length > 1 ? Integer.parseInt(parts[1]) : 32);
+            } else {
+                high = toLong(address, 0);
+                low = toLong(address, 8);
+                prefix = parts.length > 1 ? Integer.parseInt(parts[1]) : 128;
+            }
+            add(high, low, prefix);
+        }
+
+        public void add(long high, long low, int prefixLength) {
+            int n = highs.length;
+            highs = Arrays.copyOf(highs, n + 1);
+            lows = Arrays.copyOf(lows, n + 1);
+            prefixLengths = Arrays.copyOf(prefixLengths, n + 1);
+            highs[n] = high;
+            lows[n] = low;
+            prefixLengths[n] = prefixLength;
+        }
+
+        public boolean isEmpty() {
+            return highs.length == 0;
+        }
+
+        public boolean matches(long high, long low) {
+            for (int i = 0; i < highs.length; i++) {
+                int prefix = prefixLengths[i];
+                long highMask = prefix >= 64 ? -1L : prefix == 0 ? 0 : -1L << (64 - prefix);
+                long lowMask = prefix <= 64 ? 0 : prefix >= 128 ? -1L : -1L << (128 - prefix);
+                if ((high & highMask) == (highs[i] & highMask) && (low & lowMask) == (lows[i] & lowMask)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static long toLong(byte[] bytes, int offset) {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | (bytes[offset + i] & 0xFF);
+            }
+            return value;
+        }
+    }
+
+    // Open-addressing hash table over flat arrays, so adding a packet to its flow allocates nothing
+    private static final class FlowTable {
+        private long[] srcHighs = new long[1024];
+        private long[] srcLows = new long[1024];
+        private long[] dstHighs = new long[1024];
+        private long[] dstLows = new long[1024];
+        private long[] portsAndProtocol = new long[1024]; // srcPort << 32 | dstPort << 16 | protocol, -1 when empty
+        private long[] packetCounts = new long[1024];
+        private long[] byteCounts = new long[1024];
+        private int size;
+
+        FlowTable() {
+            Arrays.fill(portsAndProtocol, -1);
+        }
+
+        void add(long srcHigh, long srcLow, long dstHigh, long dstLow, int srcPort, int dstPort,
+                 int protocol, long wireLength) {
+            add(srcHigh, srcLow, dstHigh, dstLow, ((long) srcPort << 32) | ((long) dstPort << 16) | protocol,
+                    1, wireLength);
+        }
+
+        private void add(long srcHigh, long srcLow, long dstHigh, long dstLow, long ports, long packets, long bytes) {
+            if (size * 2 >= portsAndProtocol.length) {
+                resize();
+            }
+            int mask = portsAndProtocol.length - 1;
+            int slot = hash(srcHigh, srcLow, dstHigh, dstLow, ports) & mask;
+            while (portsAndProtocol[slot] != -1) {
+                if (portsAndProtocol[slot] == ports && srcLows[slot] == srcLow && dstLows[slot] == dstLow
+                        && srcHighs[slot] == srcHigh && dstHighs[slot] == dstHigh) {
+                    packetCounts[slot] += packets;
+                    byteCounts[slot] += bytes;
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            srcHighs[slot] = srcHigh;
+            srcLows[slot] = srcLow;
+            dstHighs[slot] = dstHigh;
+            dstLows[slot] = dstLow;
+            portsAndProtocol[slot] = ports;
+            packetCounts[slot] = packets;
+            byteCounts[slot] = bytes;
+            size++;
+        }
+
+        private static int hash(long srcHigh, long srcLow, long dstHigh, long dstLow, long ports) {
+            long h = srcLow * 0x9E3779B97F4A7C15L;
+            h = (h ^ dstLow) * 0x9E3779B97F4A7C15L;
+            h = (h ^ srcHigh ^ (dstHigh << 1)) * 0x9E3779B97F4A7C15L;
+            h = (h ^ ports) * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+
+        private void resize() {
+            long[] oldSrcHighs = srcHighs;
+            long[] oldSrcLows = srcLows;
+            long[] oldDstHighs = dstHighs;
+            long[] oldDstLows = dstLows;
+            long[] oldPorts = portsAndProtocol;
+            long[] oldPackets = packetCounts;
+            long[] oldBytes = byteCounts;
+            int capacity = oldPorts.length * 2;
+            srcHighs = new long[capacity];
+            srcLows = new long[capacity];
+            dstHighs = new long[capacity];
+            dstLows = new long[capacity];
+            portsAndProtocol = new long[capacity];
+            packetCounts = new long[capacity];
+            byteCounts = new long[capacity];
+            Arrays.fill(portsAndProtocol, -1);
+            size = 0;
+            for (int i = 0; i < oldPorts.length; i++) {
+                if (oldPorts[i] != -1) {
+                    add(oldSrcHighs[i], oldSrcLows[i], oldDstHighs[i], oldDstLows[i], oldPorts[i],
+                            oldPackets[i], oldBytes[i]);
+                }
+            }
+        }
+
+        void merge(FlowTable other) {
+            for (int i = 0; i < other.portsAndProtocol.length; i++) {
+                if (other.portsAndProtocol[i] != -1) {
+                    add(other.srcHighs[i], other.srcLows[i], other.dstHighs[i], other.dstLows[i],
+                            other.portsAndProtocol[i], other.packetCounts[i], other.byteCounts[i]);
+                }
+            }
+        }
+
+        List<Flow> top(int limit) {
+            Integer[] slots = new Integer[size];
+            int n = 0;
+            for (int i = 0; i < portsAndProtocol.length; i++) {
+                if (portsAndProtocol[i] != -1) {
+                    slots[n++] = i;
+                }
+            }
+            Arrays.sort(slots, (a, b) -> Long.compare(byteCounts[b], byteCounts[a]));
+            List<Flow> result = new ArrayList<>();
+            for (int i = 0; i < Math.min(limit, n); i++) {
+                int slot = slots[i];
+                long ports = portsAndProtocol[slot];
+                int srcPort = (int) (ports >>> 32);
+                int dstPort = (int) ((ports >>> 16) & 0xFFFF);
+                int protocol = (int) (ports & 0xFFFF);
+                result.add(new Flow(
+                        endpoint(srcHighs[slot], srcLows[slot], srcPort, protocol),
+                        endpoint(dstHighs[slot], dstLows[slot], dstPort, protocol),
+                        PacketDecoder.PROTOCOL_NAMES[protocol], packetCounts[slot], byteCounts[slot]));
+            }
+            return result;
+        }
+
+        private static String endpoint(long high, long low, int port, int protocol) {
+            String address = PacketDecoder.formatAddress(high, low);
+            if (protocol != PacketDecoder.PROTOCOL_TCP && protocol != PacketDecoder.PROTOCOL_UDP) {
+                return address;
+            }
+            return PacketDecoder.isIpv4Mapped(high, low) ? address + ":" + port : "[" + address + "]:" + port;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package bandwidthmonitor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class ConsistentHashRingTest {
+    private static final List<String> NODES = List.of("localhost:9101", "localhost:9102", "localhost:9103",
+            "localhost:9104");
+    private static final int AGENTS = 20000;
+
+    @Test
+    void agentsSpreadEvenlyOverNodes() {
+        ConsistentHashRing ring = new ConsistentHashRing(NODES, ConsistentHashRing.DEFAULT_VIRTUAL_NODES);
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < AGENTS; i++) {
+            counts.merge(ring.ownerOf("agent-" + i), 1, Integer::sum);
+        }
+
+        assertEquals(NODES.size(), counts.size());
+        double fair = (double) AGENTS / NODES.size();
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            double share = entry.getValue() / fair;
+            assertTrue(share > 0.8 && share < 1.2, entry.getKey() + " owns " + entry.getValue() + " agents");
+        }
+    }
+
+    @Test
+    void onlyTheFailedNodesAgentsMoveAndTheyMoveBack() {
+        ConsistentHashRing full = new ConsistentHashRing(NODES, ConsistentHashRing.DEFAULT_VIRTUAL_NODES);
+        String failed = NODES.get(1);
+        ConsistentHashRing degraded = new ConsistentHashRing(
+                List.of(NODES.get(0), NODES.get(2), NODES.get(3)), ConsistentHashRing.DEFAULT_VIRTUAL_NODES);
+        ConsistentHashRing recovered = new ConsistentHashRing(NODES, ConsistentHashRing.DEFAULT_VIRTUAL_NODES);
+
+        int moved = 0;
+        for (int i = 0; i < AGENTS; i++) {
+            String agent = "agent-" + i;
+            String before = full.ownerOf(agent);
+            String during = degraded.ownerOf(agent);
+            if (before.equals(failed)) {
+                moved++;
+                assertNotEquals(failed, during, agent);
+            } else {
+                assertEquals(before, during, agent + " moved although its node stayed up");
+            }
+            assertEquals(before, recovered.ownerOf(agent), agent + " did not move back");
+        }
+        assertTrue(moved > 0);
+    }
+
+    @Test
+    void emptyRingOwnsNothing() {
+        assertNull(new ConsistentHashRing(List.of(), ConsistentHashRing.DEFAULT_VIRTUAL_NODES).ownerOf("agent"));
+    }
+}
@@ -0,0 +1,64 @@
+package bandwidthmonitor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+class FleetHistoryTest {
+    @Test
+    void missingAgentIsEvictedAndItsSlotReusedWithACleanHistory() {
+        FleetHistory history = new FleetHistory(10);
+        for (int i = 0; i < 5; i++) {
+            history.apply(update(new String[]{"gone", "steady"}, 100 + i));
+        }
+        int goneSlot = slotOf(history, "gone");
+
+        for (int i = 1; i < FleetHistory.EVICT_AFTER_UPDATES; i++) {
+            history.apply(update(new String[]{"steady"}, 50));
+        }
+        assertEquals(2, history.slotsInUse());
+        assertEquals("gone", history.getAgentId(goneSlot));
+
+        history.apply(update(new String[]{"steady"}, 50));
+        assertEquals(1, history.slotsInUse());
+        assertNull(history.getAgentId(goneSlot));
+
+        history.apply(update(new String[]{"steady", "newcomer"}, 7));
+        assertEquals(2, history.slotsInUse());
+        assertEquals(goneSlot, slotOf(history, "newcomer"));
+        float[] points = new float[history.getHistorySize()];
+        assertEquals(1, history.copyHistory(goneSlot, points));
+        assertEquals(7, points[0]);
+    }
+
+    @Test
+    void slotsStayBoundedWhenAgentsReconnectUnderNewIds() {
+        FleetHistory history = new FleetHistory(10);
+        for (int i = 0; i < 1000; i++) {
+            history.apply(update(new String[]{"steady", "agent-" + i}, i));
+            assertTrue(history.slotsInUse() <= FleetHistory.EVICT_AFTER_UPDATES + 1,
+                    history.slotsInUse() + " slots after " + i + " updates");
+            assertEquals(2, history.size());
+        }
+    }
+
+    // Every agent downloads at the same rate
+    private static FleetUpdate update(String[] ids, double rate) {
+        double[] download = new double[ids.length];
+        Arrays.fill(download, rate);
+        return new FleetUpdate(ids, download, new double[ids.length]);
+    }
+
+    private static int slotOf(FleetHistory history, String agentId) {
+        for (int row = 0; row < history.size(); row++) {
+            if (agentId.equals(history.getAgentId(history.slotAt(row)))) {
+                return history.slotAt(row);
+            }
+        }
+        throw new AssertionError(agentId + " is not shown");
+    }
+}
@@ -0,0 +1,33 @@
+package bandwidthmonitor;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class FleetUpdateTest {
+    @Test
+    void mergedTopKRanksByCombinedRateLikeTheFleetTab() {
+        // "uploader" has the lowest download but the highest combined rate
+        FleetUpdate first = new FleetUpdate(new String[]{"uploader", "idle"}, new double[]{1, 0}, new double[]{900, 0});
+        FleetUpdate second = new FleetUpdate(new String[]{"downloader", "mixed", "uploader"},
+                new double[]{500, 300, 1}, new double[]{0, 300, 900});
+
+        FleetUpdate merged = FleetUpdate.merge(List.of(first, second), 3);
+
+        String[] ids = new String[merged.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = merged.getAgentId(i);
+        }
+        assertArrayEquals(new String[]{"uploader", "mixed", "downloader"}, ids);
+        assertEquals(901, merged.getRate(0));
+
+        FleetHistory history = new FleetHistory(10);
+        history.apply(FleetUpdate.merge(List.of(first, second), 0));
+        for (int row = 0; row < ids.length; row++) {
+            assertEquals(ids[row], history.getAgentId(history.slotAt(row)));
+        }
+    }
+}
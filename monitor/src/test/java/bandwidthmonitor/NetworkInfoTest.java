@@ -0,0 +1,117 @@
+package bandwidthmonitor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+class NetworkInfoTest {
+    private static final String IP = "203.0.113.7";
+    private static final String ISP = "AS64500 Example Networks";
+    private static final long LONG_TTL_MS = TimeUnit.MINUTES.toMillis(10);
+
+    @TempDir
+    Path dir;
+
+    private HttpServer server;
+    private String endpoint;
+    private final AtomicInteger ipRequests = new AtomicInteger();
+    private final AtomicInteger ispRequests = new AtomicInteger();
+
+    @BeforeEach
+    void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/ip", exchange -> {
+            ipRequests.incrementAndGet();
+            respond(exchange, IP);
+        });
+        server.createContext("/" + IP + "/org", exchange -> {
+            ispRequests.incrementAndGet();
+            respond(exchange, ISP);
+        });
+        server.start();
+        endpoint = "http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop(0);
+    }
+
+    @Test
+    void ipAndIspShareOneIpRequest() {
+        NetworkInfo info = new NetworkInfo(endpoint, dir.resolve("cache.properties"), LONG_TTL_MS);
+
+        String ip = info.getPublicIPAsync().join();
+        String isp = info.getISPAsync().join();
+
+        assertEquals(IP, ip);
+        assertEquals(ISP, isp);
+        assertEquals(1, ipRequests.get());
+        assertEquals(1, ispRequests.get());
+    }
+
+    @Test
+    void cachedValueIsFetchedAgainAfterItsTtl() throws Exception {
+        NetworkInfo info = new NetworkInfo(endpoint, dir.resolve("cache.properties"), 200);
+
+        assertEquals(IP, info.getPublicIPAsync().join());
+        assertEquals(IP, info.getPublicIPAsync().join());
+        assertEquals(1, ipRequests.get());
+
+        Thread.sleep(300);
+        assertEquals(IP, info.getPublicIPAsync().join());
+        assertEquals(2, ipRequests.get());
+    }
+
+    @Test
+    void warmStartReadsThePersistedCache() {
+        Path cacheFile = dir.resolve("cache.properties");
+        new NetworkInfo(endpoint, cacheFile, LONG_TTL_MS).getISPAsync().join();
+        assertEquals(1, ipRequests.get());
+
+        NetworkInfo restarted = new NetworkInfo(endpoint, cacheFile, LONG_TTL_MS);
+        assertEquals(IP, restarted.getCachedPublicIP());
+        assertEquals(ISP, restarted.getCachedISP());
+        assertEquals(IP, restarted.getPublicIPAsync().join());
+        assertEquals(ISP, restarted.getISPAsync().join());
+        assertEquals(1, ipRequests.get());
+        assertEquals(1, ispRequests.get());
+    }
+
+    @Test
+    void staleValueIsReturnedWhenTheEndpointIsUnreachable() throws Exception {
+        NetworkInfo info = new NetworkInfo(endpoint, dir.resolve("cache.properties"), 100);
+        assertEquals(ISP, info.getISPAsync().join());
+
+        server.stop(0);
+        Thread.sleep(200);
+
+        assertEquals(IP, info.getPublicIPAsync().join());
+        assertEquals(ISP, info.getISPAsync().join());
+        assertEquals("Unknown", new NetworkInfo(endpoint, dir.resolve("empty.properties"), 100)
+                .getPublicIPAsync().join());
+    }
+
+    private static void respond(HttpExchange exchange, String body) throws IOException {
+        byte[] bytes = (body + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package bandwidthmonitor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PcapAnalyzerTest {
+    private static final long START_SECONDS = 1_700_000_000L;
+    private static final int LOCAL = 0x0A000001; // 10.0.0.1
+    private static final int REMOTE = 0x0A000002; // 10.0.0.2
+    private static final int TCP = 6;
+    private static final int UDP = 17;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void classicCaptureIsSplitByDirectionProtocolAndInterval() throws Exception {
+        Path file = dir.resolve("small.pcap");
+        try (ClassicWriter writer = new ClassicWriter(file)) {
+            writer.packet(START_SECONDS, 0, frame(TCP, REMOTE, LOCAL, 100));
+            writer.packet(START_SECONDS, 500_000, frame(UDP, LOCAL, REMOTE, 50));
+            writer.packet(START_SECONDS + 2, 250_000, frame(TCP, REMOTE, LOCAL, 200));
+        }
+
+        PcapAnalyzer.Result result = analyze(file, TimeUnit.SECONDS.toNanos(1), 1);
+        TrafficAggregate aggregate = result.getAggregate();
+        int tcpBytes = frame(TCP, REMOTE, LOCAL, 100).length + frame(TCP, REMOTE, LOCAL, 200).length;
+        int udpBytes = frame(UDP, LOCAL, REMOTE, 50).length;
+
+        assertEquals(3, aggregate.getPackets());
+        assertEquals(tcpBytes, aggregate.getProtocolBytes(PacketDecoder.PROTOCOL_TCP));
+        assertEquals(udpBytes, aggregate.getProtocolBytes(PacketDecoder.PROTOCOL_UDP));
+        assertEquals(frame(TCP, REMOTE, LOCAL, 100).length, aggregate.getDownloadBytes(0));
+        assertEquals(udpBytes, aggregate.getUploadBytes(0));
+        assertEquals(0, aggregate.getDownloadBytes(1));
+        assertEquals(frame(TCP, REMOTE, LOCAL, 200).length, aggregate.getDownloadBytes(2));
+
+        // The quiet second in between is reported as a zero sample
+        List<NetworkData> series = result.toNetworkData();
+        assertEquals(3, series.size());
+        assertEquals(0.0, series.get(1).getDownloadSpeed());
+        assertEquals(tcpBytes / 1024, series.get(2).getTotalDownloaded());
+    }
+
+    @Test
+    void parallelSegmentsCountEveryRecordExactlyOnce() throws Exception {
+        // Every payload carries a chain of fake record headers, so segments that start mid-record
+        // can lock onto the wrong offset and must be re-parsed from where the previous one stopped
+        Path file = dir.resolve("large.pcap");
+        long expectedDownload = 0;
+        long expectedUpload = 0;
+        int packets = 0;
+        try (ClassicWriter writer = new ClassicWriter(file)) {
+            while (Files.size(file) < 20L << 20) {
+                boolean download = packets % 3 != 0;
+                byte[] frame = frame(TCP, download ? REMOTE : LOCAL, download ? LOCAL : REMOTE, 400 + packets % 700);
+                decoyChain(frame, 14 + 20 + 20, START_SECONDS);
+                writer.packet(START_SECONDS + packets / 1000, (packets % 1000) * 1000, frame);
+                if (download) {
+                    expectedDownload += frame.length;
+                } else {
+                    expectedUpload += frame.length;
+                }
+                packets++;
+            }
+        }
+
+        for (int threads : new int[]{1, 4}) {
+            TrafficAggregate aggregate = analyze(file, TimeUnit.SECONDS.toNanos(1), threads).getAggregate();
+            assertEquals(packets, aggregate.getPackets(), "threads=" + threads);
+            assertEquals(expectedDownload, sum(aggregate, true), "threads=" + threads);
+            assertEquals(expectedUpload, sum(aggregate, false), "threads=" + threads);
+            assertEquals(0, aggregate.getProtocolBytes(PacketDecoder.PROTOCOL_NON_IP), "threads=" + threads);
+        }
+    }
+
+    @Test
+    void pcapngSectionsInBothByteOrdersDecodeTheSameAfterInference() throws Exception {
+        Path file = dir.resolve("sections.pcapng");
+        byte[] download = frame(TCP, REMOTE, LOCAL, 300);
+        byte[] upload = frame(UDP, LOCAL, REMOTE, 80);
+        try (OutputStream out = Files.newOutputStream(file)) {
+            for (ByteOrder order : new ByteOrder[]{ByteOrder.LITTLE_ENDIAN, ByteOrder.BIG_ENDIAN}) {
+                out.write(sectionHeader(order));
+                out.write(interfaceDescription(order, PacketDecoder.LINKTYPE_ETHERNET));
+                for (int i = 0; i < 10; i++) {
+                    long micros = TimeUnit.SECONDS.toMicros(START_SECONDS) + i * 100_000L;
+                    out.write(enhancedPacket(order, 0, micros, i % 2 == 0 ? download : upload));
+                }
+            }
+        }
+
+        // The stateful pass behind inference must not leave the second section's byte order behind
+        TrafficAggregate afterInference;
+        try (PcapAnalyzer inferred = PcapAnalyzer.open(file)) {
+            inferred.inferLocalAddress(new TrafficAggregate.AddressMatcher());
+            TrafficAggregate.AddressMatcher local = new TrafficAggregate.AddressMatcher();
+            local.add("10.0.0.1");
+            afterInference = inferred.analyze(TimeUnit.SECONDS.toNanos(1), local, 1).getAggregate();
+        }
+        TrafficAggregate direct = analyze(file, TimeUnit.SECONDS.toNanos(1), 1).getAggregate();
+
+        assertEquals(20, direct.getPackets());
+        assertEquals(10L * download.length, sum(direct, true));
+        assertEquals(10L * upload.length, sum(direct, false));
+        assertEquals(direct.getPackets(), afterInference.getPackets());
+        assertEquals(sum(direct, true), sum(afterInference, true));
+        assertEquals(sum(direct, false), sum(afterInference, false));
+    }
+
+    @Test
+    void largePcapngWithSeveralSectionsIsParsedInParallelRegions() throws Exception {
+        // Sections in both byte orders and an interface added mid-section. The switch to big-endian lies
+        // far from the end of the file, so the worker segment that reaches it can't treat the garbage
+        // length it reads as a truncated tail.
+        Path file = dir.resolve("sections-large.pcapng");
+        long expectedDownload = 0;
+        long expectedUpload = 0;
+        int packets = 0;
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+            long written = 0;
+            ByteOrder[] orders = {ByteOrder.LITTLE_ENDIAN, ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN};
+            long[] sectionBytes = {10L << 20, 40L << 20, 40L << 20};
+            for (int section = 0; section < orders.length; section++) {
+                ByteOrder order = orders[section];
+                out.write(sectionHeader(order));
+                out.write(interfaceDescription(order, PacketDecoder.LINKTYPE_ETHERNET));
+                boolean rawInterface = false;
+                long sectionEnd = written + sectionBytes[section];
+                while (written < sectionEnd) {
+                    if (!rawInterface && written > sectionEnd - sectionBytes[section] / 2) {
+                        out.write(interfaceDescription(order, PacketDecoder.LINKTYPE_RAW));
+                        rawInterface = true;
+                    }
+                    boolean download = packets % 4 != 0;
+                    byte[] frame = frame(TCP, download ? REMOTE : LOCAL, download ? LOCAL : REMOTE, 300 + packets % 900);
+                    long micros = TimeUnit.SECONDS.toMicros(START_SECONDS) + packets * 1000L;
+                    // Over the raw interface the same IP packet is 14 bytes shorter
+                    byte[] captured = rawInterface && packets % 2 == 0 ? Arrays.copyOfRange(frame, 14, frame.length) : frame;
+                    byte[] block = enhancedPacket(order, captured == frame ? 0 : 1, micros, captured);
+                    out.write(block);
+                    written += block.length;
+                    if (download) {
+                        expectedDownload += captured.length;
+                    } else {
+                        expectedUpload += captured.length;
+                    }
+                    packets++;
+                }
+            }
+        }
+
+        for (int threads : new int[]{1, 4}) {
+            TrafficAggregate aggregate = analyze(file, TimeUnit.SECONDS.toNanos(1), threads).getAggregate();
+            assertEquals(packets, aggregate.getPackets(), "threads=" + threads);
+            assertEquals(expectedDownload, sum(aggregate, true), "threads=" + threads);
+            assertEquals(expectedUpload, sum(aggregate, false), "threads=" + threads);
+            assertEquals(0, aggregate.getProtocolBytes(PacketDecoder.PROTOCOL_NON_IP), "threads=" + threads);
+        }
+    }
+
+    @Test
+    void farOutOfRangeTimestampsDoNotAllocateTheGap() throws Exception {
+        Path file = dir.resolve("stray.pcap");
+        byte[] frame = frame(TCP, REMOTE, LOCAL, 100);
+        try (ClassicWriter writer = new ClassicWriter(file)) {
+            for (int i = 0; i < 10; i++) {
+                writer.packet(START_SECONDS, i * 10_000, frame);
+            }
+            writer.packet(START_SECONDS + TimeUnit.DAYS.toSeconds(300), 0, frame);
+            writer.packet(START_SECONDS - 1, 0, frame); // Out of order, before the first record
+        }
+
+        // 300 days of 1 ms buckets would not even fit an int index
+        for (long interval : new long[]{TimeUnit.MILLISECONDS.toNanos(100), TimeUnit.MILLISECONDS.toNanos(1)}) {
+            PcapAnalyzer.Result result = analyze(file, interval, 2);
+            assertEquals(12, result.getAggregate().getPackets());
+            assertEquals(12L * frame.length, sum(result.getAggregate(), true));
+            List<NetworkData> series = result.toNetworkData();
+            assertTrue(series.size() < 2000, "series of " + series.size() + " samples");
+            assertEquals(12L * frame.length / 1024, series.get(series.size() - 1).getTotalDownloaded());
+        }
+    }
+
+    @Test
+    void truncatedLastRecordIsIgnored() throws Exception {
+        Path file = dir.resolve("truncated.pcap");
+        byte[] frame = frame(UDP, REMOTE, LOCAL, 500);
+        try (ClassicWriter writer = new ClassicWriter(file)) {
+            for (int i = 0; i < 5; i++) {
+                writer.packet(START_SECONDS, i * 1000, frame);
+            }
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 100);
+        }
+
+        TrafficAggregate aggregate = analyze(file, TimeUnit.SECONDS.toNanos(1), 1).getAggregate();
+        assertEquals(4, aggregate.getPackets());
+        assertEquals(4L * frame.length, sum(aggregate, true));
+    }
+
+    private static PcapAnalyzer.Result analyze(Path file, long intervalNanos, int threads) throws Exception {
+        TrafficAggregate.AddressMatcher local = new TrafficAggregate.AddressMatcher();
+        local.add("10.0.0.1");
+        try (PcapAnalyzer analyzer = PcapAnalyzer.open(file)) {
+            return analyzer.analyze(intervalNanos, local, threads);
+        }
+    }
+
+    private static long sum(TrafficAggregate aggregate, boolean download) {
+        long total = 0;
+        for (long bucket : aggregate.seriesBuckets(0)) {
+            total += download ? aggregate.getDownloadBytes(bucket) : aggregate.getUploadBytes(bucket);
+        }
+        return total;
+    }
+
+    // Ethernet + IPv4 + an 8-byte transport header (enough for the ports) + payload
+    private static byte[] frame(int protocol, int src, int dst, int payload) {
+        ByteBuffer frame = ByteBuffer.allocate(14 + 20 + 20 + payload);
+        frame.position(12);
+        frame.putShort((short) 0x0800);
+        frame.put((byte) 0x45).put((byte) 0).putShort((short) (frame.capacity() - 14));
+        frame.putInt(0).put((byte) 64).put((byte) protocol).putShort((short) 0);
+        frame.putInt(src).putInt(dst);
+        frame.putShort((short) 40000).putShort((short) 443);
+        return frame.array();
+    }
+
+    // Fills the payload with back-to-back empty records, which look like a valid place to resync
+    private static void decoyChain(byte[] frame, int offset, long seconds) {
+        ByteBuffer buffer = ByteBuffer.wrap(frame).order(ByteOrder.LITTLE_ENDIAN);
+        for (int pos = offset; pos + 16 <= frame.length; pos += 16) {
+            buffer.putInt(pos, (int) seconds).putInt(pos + 4, 0).putInt(pos + 8, 0).putInt(pos + 12, 0);
+        }
+    }
+
+    private static byte[] sectionHeader(ByteOrder order) {
+        return ByteBuffer.allocate(28).order(order)
+                .putInt(0x0A0D0D0A).putInt(28).putInt(0x1A2B3C4D).putShort((short) 1).putShort((short) 0)
+                .putLong(-1).putInt(28).array();
+    }
+
+    private static byte[] interfaceDescription(ByteOrder order, int linkType) {
+        return ByteBuffer.allocate(20).order(order)
+                .putInt(1).putInt(20).putShort((short) linkType).putShort((short) 0).putInt(65535).putInt(20).array();
+    }
+
+    private static byte[] enhancedPacket(ByteOrder order, int interfaceId, long micros, byte[] frame) {
+        int padded = (frame.length + 3) & ~3;
+        int length = 32 + padded;
+        ByteBuffer block = ByteBuffer.allocate(length).order(order)
+                .putInt(6).putInt(length).putInt(interfaceId).putInt((int) (micros >>> 32)).putInt((int) micros)
+                .putInt(frame.length).putInt(frame.length).put(frame);
+        block.putInt(length - 4, length);
+        return block.array();
+    }
+
+    // Little-endian classic pcap with microsecond timestamps over Ethernet
+    private static final class ClassicWriter implements AutoCloseable {
+        private final FileChannel channel;
+
+        ClassicWriter(Path file) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            ByteBuffer header = ByteBuffer.allocate(24).order(ByteOrder.LITTLE_ENDIAN)
+                    .putInt(0xA1B2C3D4).putShort((short) 2).putShort((short) 4).putInt(0).putInt(0)
+                    .putInt(65535).putInt(PacketDecoder.LINKTYPE_ETHERNET);
+            write(header);
+        }
+
+        void packet(long seconds, int micros, byte[] frame) throws IOException {
+            ByteBuffer record = ByteBuffer.allocate(16 + frame.length).order(ByteOrder.LITTLE_ENDIAN)
+                    .putInt((int) seconds).putInt(micros).putInt(frame.length).putInt(frame.length).put(frame);
+            write(record);
+        }
+
+        private void write(ByteBuffer buffer) throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package bandwidthmonitor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class PipelineMetricsTest {
+    @Test
+    void counterIsScrapedInPrometheusFormat() {
+        PipelineMetrics.Counter counter = PipelineMetrics.counter("test_frames_total", "Frames seen by the test");
+        try {
+            counter.increment();
+            counter.add(41);
+
+            assertEquals(PipelineMetrics.ENABLED ? 42 : 0, counter.get());
+            String scrape = PipelineMetrics.scrape();
+            assertTrue(scrape.contains("# HELP test_frames_total Frames seen by the test\n"
+                    + "# TYPE test_frames_total counter\n"
+                    + "test_frames_total " + counter.get() + "\n"), scrape);
+        } finally {
+            PipelineMetrics.unregister(counter);
+        }
+        assertFalse(PipelineMetrics.scrape().contains("test_frames_total"));
+    }
+
+    @Test
+    void histogramBucketsAreCumulative() {
+        PipelineMetrics.Histogram histogram = PipelineMetrics.histogram("test_latency_seconds", "Test latency");
+        try {
+            histogram.observeNanos(TimeUnit.MICROSECONDS.toNanos(30));
+            histogram.observeNanos(TimeUnit.MILLISECONDS.toNanos(2));
+            histogram.observeNanos(TimeUnit.SECONDS.toNanos(20)); // Beyond the last bound
+            if (!PipelineMetrics.ENABLED) {
+                assertEquals(0, histogram.getCount());
+                return;
+            }
+
+            assertEquals(3, histogram.getCount());
+            String scrape = PipelineMetrics.scrape();
+            assertTrue(scrape.contains("# TYPE test_latency_seconds histogram\n"), scrape);
+            assertTrue(scrape.contains("test_latency_seconds_bucket{le=\"0.00005\"} 1\n"), scrape);
+            assertTrue(scrape.contains("test_latency_seconds_bucket{le=\"0.001\"} 1\n"), scrape);
+            assertTrue(scrape.contains("test_latency_seconds_bucket{le=\"0.002\"} 2\n"), scrape);
+            assertTrue(scrape.contains("test_latency_seconds_bucket{le=\"10\"} 2\n"), scrape);
+            assertTrue(scrape.contains("test_latency_seconds_bucket{le=\"+Inf\"} 3\n"), scrape);
+            assertTrue(scrape.contains("test_latency_seconds_sum 20.00203\n"), scrape);
+            assertTrue(scrape.contains("test_latency_seconds_count 3\n"), scrape);
+        } finally {
+            PipelineMetrics.unregister(histogram);
+        }
+    }
+
+    @Test
+    void registeredCollectorIsScrapedUntilUnregistered() {
+        long[] value = {7};
+        PipelineMetrics.Collector collector = out -> {
+            PipelineMetrics.writeHeader(out, "test_queue_depth", "Test queue depth", "gauge");
+            out.append("test_queue_depth ").append(value[0]).append('\n');
+        };
+        PipelineMetrics.register(collector);
+        try {
+            assertTrue(PipelineMetrics.scrape().contains("test_queue_depth 7\n"));
+            value[0] = 3;
+            assertTrue(PipelineMetrics.scrape().contains("test_queue_depth 3\n"));
+        } finally {
+            PipelineMetrics.unregister(collector);
+        }
+        assertFalse(PipelineMetrics.scrape().contains("test_queue_depth"));
+    }
+}
@@ -0,0 +1,82 @@
+package bandwidthmonitor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class SamplingHubTest {
+    @Test
+    void tickFollowsTheSubscribedIntervals() {
+        SamplingHub hub = new SamplingHub(50);
+        assertEquals(0, hub.getTickMillis());
+
+        SamplingHub.Subscription slow = hub.subscribe(300, snapshot -> { });
+        assertEquals(300, hub.getTickMillis());
+        SamplingHub.Subscription fast = hub.subscribe(200, snapshot -> { });
+        assertEquals(100, hub.getTickMillis());
+
+        slow.cancel();
+        assertEquals(200, hub.getTickMillis());
+        slow.cancel(); // Cancelling twice is harmless
+        fast.cancel();
+        assertEquals(0, hub.getTickMillis());
+    }
+
+    @Test
+    void intervalsAreRoundedToTheMinimumTick() {
+        SamplingHub hub = new SamplingHub(50);
+        SamplingHub.Subscription second = hub.subscribe(1000, snapshot -> { });
+        SamplingHub.Subscription almostSecond = hub.subscribe(999, snapshot -> { });
+        assertEquals(1000, almostSecond.getIntervalMillis());
+        assertEquals(1000, hub.getTickMillis());
+
+        SamplingHub.Subscription tiny = hub.subscribe(1, snapshot -> { });
+        assertEquals(50, tiny.getIntervalMillis());
+        assertEquals(50, hub.getTickMillis());
+        tiny.cancel();
+
+        SamplingHub.Subscription odd = hub.subscribe(130, snapshot -> { });
+        assertEquals(150, odd.getIntervalMillis());
+        assertEquals(50, hub.getTickMillis());
+        odd.cancel();
+        assertEquals(1000, hub.getTickMillis());
+
+        second.cancel();
+        almostSecond.cancel();
+        assertThrows(IllegalArgumentException.class, () -> hub.subscribe(0, snapshot -> { }));
+    }
+
+    @Test
+    void subscribersAreCalledAtTheirIntervalUntilCancelled() throws Exception {
+        SamplingHub hub = new SamplingHub(50);
+        AtomicInteger fast = new AtomicInteger();
+        AtomicInteger slow = new AtomicInteger();
+        CountDownLatch slowCalled = new CountDownLatch(2);
+        SamplingHub.Subscription fastSubscription = hub.subscribe(50, snapshot -> {
+            if (fast.incrementAndGet() == 1) {
+                throw new IllegalStateException("A failing subscriber must not stop the others");
+            }
+        });
+        SamplingHub.Subscription slowSubscription = hub.subscribe(200, snapshot -> {
+            slow.incrementAndGet();
+            slowCalled.countDown();
+        });
+
+        assertTrue(slowCalled.await(5, TimeUnit.SECONDS));
+        slowSubscription.cancel();
+        Thread.sleep(100); // A callback may already be running
+        int slowCalls = slow.get();
+        Thread.sleep(400);
+
+        assertEquals(slowCalls, slow.get());
+        assertTrue(fast.get() >= 2 * slowCalls, "fast " + fast.get() + ", slow " + slowCalls);
+        assertEquals(50, hub.getTickMillis());
+        fastSubscription.cancel();
+    }
+}
@@ -0,0 +1,99 @@
+package bandwidthmonitor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ThroughputTestServerTest {
+    private ThroughputTestServer server;
+    private int port;
+
+    @BeforeEach
+    void start() throws IOException {
+        server = ThroughputTestServer.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        port = server.getPort();
+    }
+
+    @AfterEach
+    void stop() throws IOException {
+        server.close();
+    }
+
+    @Test
+    void unknownDirectionIsRejectedAndTheConnectionClosed() throws Exception {
+        for (int direction : new int[]{-1, 7}) {
+            try (Socket socket = connect()) {
+                DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+                out.writeInt(ThroughputTest.MAGIC);
+                out.writeByte(ThroughputTest.KIND_CONTROL);
+                out.writeByte(direction);
+                out.writeInt(1);
+                out.writeInt(1000);
+                out.flush();
+
+                DataInputStream in = new DataInputStream(socket.getInputStream());
+                assertEquals(-1, in.readLong());
+                assertTrue(in.readUTF().contains("direction"));
+                assertEquals(-1, in.read());
+            }
+        }
+
+        // Nothing was left behind that blocks the next test
+        ThroughputTest.Result result = new ThroughputTest(InetAddress.getLoopbackAddress().getHostAddress(), port)
+                .run(ThroughputTest.Direction.DOWNLOAD, 2, 200);
+        assertTrue(result.getAggregateGoodputMbps() > 0);
+    }
+
+    @Test
+    void secondClaimOfTheSameStreamIsRefused() throws Exception {
+        try (Socket control = connect()) {
+            DataOutputStream controlOut = new DataOutputStream(control.getOutputStream());
+            controlOut.writeInt(ThroughputTest.MAGIC);
+            controlOut.writeByte(ThroughputTest.KIND_CONTROL);
+            controlOut.writeByte(ThroughputTest.Direction.UPLOAD.ordinal());
+            controlOut.writeInt(2);
+            controlOut.writeInt(100);
+            controlOut.flush();
+            DataInputStream controlIn = new DataInputStream(control.getInputStream());
+            long testId = controlIn.readLong();
+            assertTrue(testId > 0);
+
+            try (Socket first = join(testId, 0); Socket second = join(testId, 1)) {
+                assertEquals(ThroughputTest.READY, controlIn.readInt());
+                try (Socket duplicate = join(testId, 0)) {
+                    assertEquals(-1, duplicate.getInputStream().read());
+                }
+                first.shutdownOutput();
+                second.shutdownOutput();
+                assertEquals(2, controlIn.readInt());
+            }
+        }
+    }
+
+    private Socket connect() throws IOException {
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        socket.setSoTimeout(10000);
+        return socket;
+    }
+
+    private Socket join(long testId, int stream) throws IOException {
+        Socket socket = connect();
+        DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+        out.writeInt(ThroughputTest.MAGIC);
+        out.writeByte(ThroughputTest.KIND_DATA);
+        out.writeLong(testId);
+        out.writeInt(stream);
+        out.flush();
+        return socket;
+    }
+}
@@ -0,0 +1,79 @@
+package bandwidthmonitor;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class TrafficAggregateTest {
+    private static final long BASE = 1_000_000_000_000L;
+    private static final long INTERVAL = 1_000_000L; // 1 ms
+    private static final long LOCAL_LOW = 0xFFFF0A000001L; // ::ffff:10.0.0.1
+    private static final long REMOTE_LOW = 0xFFFF0A000002L;
+
+    @Test
+    void mergingSegmentsMatchesASingleAggregate() {
+        long[] buckets = {-3, 0, 1, 255, 256, 70_000, 5_000_000_000L};
+        TrafficAggregate single = aggregate();
+        TrafficAggregate first = aggregate();
+        TrafficAggregate second = aggregate();
+        for (int i = 0; i < buckets.length; i++) {
+            long timestamp = BASE + buckets[i] * INTERVAL + INTERVAL / 2;
+            int bytes = 100 + i;
+            download(single, timestamp, bytes);
+            upload(single, timestamp, bytes * 2);
+            TrafficAggregate segment = i % 2 == 0 ? first : second;
+            download(segment, timestamp, bytes);
+            upload(segment, timestamp, bytes * 2);
+        }
+        // Overlapping bucket from both halves
+        download(single, BASE, 7);
+        download(single, BASE, 9);
+        download(first, BASE, 7);
+        download(second, BASE, 9);
+
+        TrafficAggregate merged = aggregate();
+        merged.merge(first);
+        merged.merge(second);
+
+        assertArrayEquals(buckets, merged.seriesBuckets(0));
+        for (long bucket : buckets) {
+            assertEquals(single.getDownloadBytes(bucket), merged.getDownloadBytes(bucket), "bucket " + bucket);
+            assertEquals(single.getUploadBytes(bucket), merged.getUploadBytes(bucket), "bucket " + bucket);
+            assertEquals(single.getProtocolBytes(PacketDecoder.PROTOCOL_TCP, bucket),
+                    merged.getProtocolBytes(PacketDecoder.PROTOCOL_TCP, bucket), "bucket " + bucket);
+        }
+        assertEquals(101 + 7 + 9, merged.getDownloadBytes(0));
+        assertEquals(single.getPackets(), merged.getPackets());
+        assertEquals(single.getProtocolBytes(PacketDecoder.PROTOCOL_TCP),
+                merged.getProtocolBytes(PacketDecoder.PROTOCOL_TCP));
+    }
+
+    @Test
+    void seriesFillsShortGapsOnly() {
+        TrafficAggregate aggregate = aggregate();
+        for (long bucket : new long[]{2, 0, 5, 100, 1_000_000}) {
+            download(aggregate, BASE + bucket * INTERVAL, 10);
+        }
+
+        assertArrayEquals(new long[]{0, 2, 5, 100, 1_000_000}, aggregate.seriesBuckets(0));
+        assertArrayEquals(new long[]{0, 1, 2, 3, 4, 5, 100, 1_000_000}, aggregate.seriesBuckets(2));
+        assertEquals(0, aggregate.getDownloadBytes(3));
+        assertEquals(0, aggregate.getDownloadBytes(999_999));
+        assertArrayEquals(new long[0], aggregate().seriesBuckets(10));
+    }
+
+    private static TrafficAggregate aggregate() {
+        TrafficAggregate.AddressMatcher local = new TrafficAggregate.AddressMatcher();
+        local.add("10.0.0.1");
+        return new TrafficAggregate(BASE, INTERVAL, local);
+    }
+
+    private static void download(TrafficAggregate aggregate, long timestamp, int bytes) {
+        aggregate.packet(timestamp, bytes, PacketDecoder.PROTOCOL_TCP, 0, REMOTE_LOW, 0, LOCAL_LOW, 443, 40000);
+    }
+
+    private static void upload(TrafficAggregate aggregate, long timestamp, int bytes) {
+        aggregate.packet(timestamp, bytes, PacketDecoder.PROTOCOL_TCP, 0, LOCAL_LOW, 0, REMOTE_LOW, 40000, 443);
+    }
+}